@@ -9,6 +9,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -16,11 +17,23 @@ import java.util.stream.Collectors;
  */
 public class CalendarController {
   private CalendarManager calendarManager;
+  private CalendarSession session;
   private TextView view;
   private static final DateTimeFormatter DT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
   public CalendarController(CalendarManager calendarManager, TextView view) {
-    this.calendarManager = calendarManager;
+    this(new CalendarSession(calendarManager), view);
+  }
+
+  /**
+   * Creates a controller for one client session. Several controllers can share a manager,
+   * each with its own session and current calendar.
+   * @param session the session whose current calendar commands apply to.
+   * @param view the view that displays results.
+   */
+  public CalendarController(CalendarSession session, TextView view) {
+    this.calendarManager = session.getManager();
+    this.session = session;
     this.view = view;
   }
 
@@ -55,7 +68,17 @@ public class CalendarController {
           handleExport(parts);
           break;
         case "show":
-          handleShowBusy(parts);
+          if (parts.get(1).equalsIgnoreCase("busy")) {
+            handleShowBusyTime(parts);
+          } else {
+            handleShowBusy(parts);
+          }
+          break;
+        case "count":
+          handleCount(parts);
+          break;
+        case "find":
+          handleFindSlots(parts);
           break;
         case "exit":
           return false;
@@ -111,7 +134,7 @@ public class CalendarController {
       throw new IllegalArgumentException("Invalid use calendar syntax");
     }
     String name = parts.get(3);
-    calendarManager.setCurrentCalendar(name);
+    session.useCalendar(name);
     view.display("Switched to calendar '" + name + "'.");
   }
 
@@ -149,7 +172,7 @@ public class CalendarController {
       throw new IllegalArgumentException("Expected 'event'");
     }
     String name = parts.get(index++);
-    ZoneId timezone = calendarManager.getCurrentCalendar().getTimezone();
+    ZoneId timezone = session.getCurrentCalendar().getTimezone();
     ZonedDateTime start;
     ZonedDateTime end = null;
     if (parts.get(index).equalsIgnoreCase("on")) {
@@ -200,14 +223,14 @@ public class CalendarController {
       }
       RecurringEvent event = new RecurringEvent(name, start, end, location, description, true,
           weekdays, occurrences, recurrenceEnd);
-      if (!calendarManager.getCurrentCalendar().addRecurringEvent(event)) {
+      if (!session.getCurrentCalendar().addRecurringEvent(event)) {
         view.display("Recurring event declined due to conflict");
       } else {
         view.display("Recurring event '" + name + "' created.");
       }
     } else {
       Event event = new Event(name, start, end, location, description, true);
-      if (!calendarManager.getCurrentCalendar().addEvent(event)) {
+      if (!session.getCurrentCalendar().addEvent(event)) {
         view.display("Event declined due to conflict");
       } else {
         view.display("Event '" + name + "' created.");
@@ -221,22 +244,18 @@ public class CalendarController {
     }
     String property = parts.get(2);
     String eventName = parts.get(3);
-    ZoneId timezone = calendarManager.getCurrentCalendar().getTimezone();
+    ZoneId timezone = session.getCurrentCalendar().getTimezone();
     ZonedDateTime from = parseDateTime(parts.get(5) + " " + parts.get(6), timezone);
     String newValue = parts.get(8);
-    ZonedDateTime farFuture = from.plusYears(100);
-    List<IEvent> eventsToEdit = calendarManager.getCurrentCalendar()
-        .getEventsInRange(from, farFuture).stream()
-        .filter(e -> e.getSubject().equals(eventName))
-        .collect(Collectors.toList());
-    for (IEvent e : eventsToEdit) {
-      try {
-        calendarManager.getCurrentCalendar().editEventInstance(e.getStart(), property, newValue);
-      } catch (IllegalArgumentException ex) {
-        view.display("Cannot edit event '" + e.getSubject() + "' at " + e.getStart() + ": " + ex.getMessage());
-      }
+    // One call edits every match, series as a whole, however far into the future they run
+    int edited;
+    try {
+      edited = session.getCurrentCalendar().editEvents(eventName, from, property, newValue);
+    } catch (IllegalArgumentException ex) {
+      view.display("Cannot edit events '" + eventName + "': " + ex.getMessage());
+      return;
     }
-    if (!eventsToEdit.isEmpty()) {
+    if (edited > 0) {
       view.display("Events updated where applicable.");
     }
   }
@@ -254,17 +273,18 @@ public class CalendarController {
   }
 
   private void handleCopyEvent(List<String> parts) {
-    if (parts.size() < 11 || !parts.get(3).equals("on") || !parts.get(6).equals("--target") || !parts.get(8).equals("to")) {
+    if (parts.size() < 11 || !parts.get(3).equals("on") || !parts.get(6).equals("--target")
+        || !parts.get(8).equals("to")) {
       throw new IllegalArgumentException("Invalid copy event syntax");
     }
     String eventName = parts.get(2);
-    ZoneId currentTimezone = calendarManager.getCurrentCalendar().getTimezone();
+    ZoneId currentTimezone = session.getCurrentCalendar().getTimezone();
     ZonedDateTime sourceStart = parseDateTime(parts.get(4) + " " + parts.get(5), currentTimezone);
     String targetCalendarName = parts.get(7);
     ICalendar targetCalendar = calendarManager.getCalendar(targetCalendarName);
     ZoneId targetTimezone = targetCalendar.getTimezone();
     ZonedDateTime targetStart = parseDateTime(parts.get(9) + " " + parts.get(10), targetTimezone);
-    IEvent sourceEvent = calendarManager.getCurrentCalendar().getEventAt(sourceStart);
+    IEvent sourceEvent = session.getCurrentCalendar().getEventAt(sourceStart);
     if (sourceEvent == null || !sourceEvent.getSubject().equals(eventName)) {
       throw new IllegalArgumentException("Event not found");
     }
@@ -284,25 +304,19 @@ public class CalendarController {
     if (parts.size() < 8 || !parts.get(4).equals("--target") || !parts.get(6).equals("to")) {
       throw new IllegalArgumentException("Invalid copy events on syntax");
     }
-    ZoneId currentTimezone = calendarManager.getCurrentCalendar().getTimezone();
     LocalDate sourceDate = LocalDate.parse(parts.get(3));
-    ZonedDateTime sourceStart = sourceDate.atStartOfDay(currentTimezone);
-    ZonedDateTime sourceEnd = sourceDate.plusDays(1).atStartOfDay(currentTimezone).minusSeconds(1);
     String targetCalendarName = parts.get(5);
     ICalendar targetCalendar = calendarManager.getCalendar(targetCalendarName);
     ZoneId targetTimezone = targetCalendar.getTimezone();
     LocalDate targetDate = LocalDate.parse(parts.get(7));
-    List<IEvent> eventsToCopy = calendarManager.getCurrentCalendar().getEventsInRange(sourceStart, sourceEnd);
+    List<IEvent> eventsToCopy = eventsStartingOn(sourceDate, sourceDate);
+    long daysOffset = ChronoUnit.DAYS.between(sourceDate, targetDate);
+    List<IEvent> copies = new ArrayList<>();
     for (IEvent e : eventsToCopy) {
-      LocalTime startTime = e.getStart().toLocalTime();
-      LocalTime endTime = e.getEnd() != null ? e.getEnd().toLocalTime() : null;
-      ZonedDateTime newStart = targetDate.atTime(startTime).atZone(targetTimezone);
-      ZonedDateTime newEnd = endTime != null ? targetDate.atTime(endTime).atZone(targetTimezone) : null;
-      Event newEvent = new Event(e.getSubject(), newStart, newEnd, e.getLocation(),
-          e.getDescription(), e.isPublic());
-      if (!targetCalendar.addEvent(newEvent)) {
-        view.display("Cannot copy event '" + e.getSubject() + "' due to conflict");
-      }
+      copies.add(shiftedCopy(e, daysOffset, targetTimezone));
+    }
+    for (IEvent declined : targetCalendar.addEvents(copies)) {
+      view.display("Cannot copy event '" + declined.getSubject() + "' due to conflict");
     }
     if (!eventsToCopy.isEmpty()) {
       view.display("Events copied to '" + targetCalendarName + "' where applicable.");
@@ -310,42 +324,58 @@ public class CalendarController {
   }
 
   private void handleCopyEventsBetween(List<String> parts) {
-    if (parts.size() < 10 || !parts.get(4).equals("and") || !parts.get(6).equals("--target") || !parts.get(8).equals("to")) {
+    if (parts.size() < 10 || !parts.get(4).equals("and") || !parts.get(6).equals("--target")
+        || !parts.get(8).equals("to")) {
       throw new IllegalArgumentException("Invalid copy events between syntax");
     }
-    ZoneId currentTimezone = calendarManager.getCurrentCalendar().getTimezone();
     LocalDate sourceStartDate = LocalDate.parse(parts.get(3));
     LocalDate sourceEndDate = LocalDate.parse(parts.get(5));
-    ZonedDateTime sourceStart = sourceStartDate.atStartOfDay(currentTimezone);
-    ZonedDateTime sourceEnd = sourceEndDate.plusDays(1).atStartOfDay(currentTimezone).minusSeconds(1);
     String targetCalendarName = parts.get(7);
     ICalendar targetCalendar = calendarManager.getCalendar(targetCalendarName);
     ZoneId targetTimezone = targetCalendar.getTimezone();
     LocalDate targetStartDate = LocalDate.parse(parts.get(9));
-    List<IEvent> eventsToCopy = calendarManager.getCurrentCalendar().getEventsInRange(sourceStart, sourceEnd);
+    List<IEvent> eventsToCopy = eventsStartingOn(sourceStartDate, sourceEndDate);
+    long daysOffset = ChronoUnit.DAYS.between(sourceStartDate, targetStartDate);
+    List<IEvent> copies = new ArrayList<>();
     for (IEvent e : eventsToCopy) {
-      long daysOffset = ChronoUnit.DAYS.between(sourceStartDate, e.getStart().toLocalDate());
-      LocalDate newDate = targetStartDate.plusDays(daysOffset);
-      LocalTime startTime = e.getStart().toLocalTime();
-      LocalTime endTime = e.getEnd() != null ? e.getEnd().toLocalTime() : null;
-      ZonedDateTime newStart = newDate.atTime(startTime).atZone(targetTimezone);
-      ZonedDateTime newEnd = endTime != null ? newDate.atTime(endTime).atZone(targetTimezone) : null;
-      Event newEvent = new Event(e.getSubject(), newStart, newEnd, e.getLocation(),
-          e.getDescription(), e.isPublic());
-      if (!targetCalendar.addEvent(newEvent)) {
-        view.display("Cannot copy event '" + e.getSubject() + "' due to conflict");
-      }
+      copies.add(shiftedCopy(e, daysOffset, targetTimezone));
+    }
+    for (IEvent declined : targetCalendar.addEvents(copies)) {
+      view.display("Cannot copy event '" + declined.getSubject() + "' due to conflict");
     }
     if (!eventsToCopy.isEmpty()) {
       view.display("Events copied to '" + targetCalendarName + "' where applicable.");
     }
   }
 
+  /**
+   * Lists the events of the current calendar that start on the given days. Events that only
+   * run into the first day from the evening before are left out.
+   */
+  private List<IEvent> eventsStartingOn(LocalDate from, LocalDate to) {
+    return session.getCurrentCalendar().getEventsOnDays(from, to).stream()
+        .filter(e -> !e.getStart().toLocalDate().isBefore(from))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Copies an event the given number of days later, keeping its wall-clock start and end
+   * times in the target zone, so an event that crosses midnight still does.
+   */
+  private static Event shiftedCopy(IEvent e, long days, ZoneId targetTimezone) {
+    ZonedDateTime newStart = e.getStart().toLocalDateTime().plusDays(days)
+        .atZone(targetTimezone);
+    ZonedDateTime newEnd = e.getEnd() != null
+        ? e.getEnd().toLocalDateTime().plusDays(days).atZone(targetTimezone) : null;
+    return new Event(e.getSubject(), newStart, newEnd, e.getLocation(), e.getDescription(),
+        e.isPublic());
+  }
+
   private void handlePrint(List<String> parts) {
-    ZoneId timezone = calendarManager.getCurrentCalendar().getTimezone();
+    ZoneId timezone = session.getCurrentCalendar().getTimezone();
     ZonedDateTime from = parseDateTime(parts.get(3) + " " + parts.get(4), timezone);
     ZonedDateTime to = parts.size() > 6 ? parseDateTime(parts.get(6) + " " + parts.get(7), timezone) : from;
-    List<IEvent> events = calendarManager.getCurrentCalendar().getEventsInRange(from, to);
+    List<IEvent> events = session.getCurrentCalendar().getEventsInRange(from, to);
     view.printEvents(events.stream().map(e -> (Event) e).collect(Collectors.toList()));
   }
 
@@ -353,18 +383,141 @@ public class CalendarController {
     if (parts.size() < 3) {
       throw new IllegalArgumentException("Missing filename");
     }
+    ZoneId timezone = session.getCurrentCalendar().getTimezone();
+    ZonedDateTime from = null;
+    ZonedDateTime to = null;
+    List<String> names = new ArrayList<>();
+    boolean zip = false;
+    int index = 3;
+    while (index < parts.size()) {
+      switch (parts.get(index)) {
+        case "--from":
+          from = parseDateTime(parts.get(++index) + " " + parts.get(++index), timezone);
+          break;
+        case "--to":
+          to = parseDateTime(parts.get(++index) + " " + parts.get(++index), timezone);
+          break;
+        case "--calendars":
+          for (String name : parts.get(++index).split(",")) {
+            names.add(name.trim());
+          }
+          break;
+        case "--all":
+          names.addAll(calendarManager.getCalendarNames());
+          break;
+        case "--zip":
+          zip = true;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown parameter: " + parts.get(index));
+      }
+      index++;
+    }
+    CSVExporter exporter = new CSVExporter();
     try {
-      String path = new CSVExporter().export((Calendar) calendarManager.getCurrentCalendar(), parts.get(2));
-      view.display("Exported to: " + path);
+      if (names.isEmpty() && !zip) {
+        String path = exporter.export((Calendar) session.getCurrentCalendar(), parts.get(2),
+            from, to);
+        view.display("Exported to: " + path);
+        return;
+      }
+      List<Calendar> calendars = new ArrayList<>();
+      if (names.isEmpty()) {
+        calendars.add((Calendar) session.getCurrentCalendar());
+      }
+      for (String name : names) {
+        calendars.add((Calendar) calendarManager.getCalendar(name));
+      }
+      if (zip) {
+        view.display("Exported to: " + exporter.exportZip(calendars, parts.get(2), from, to,
+            ForkJoinPool.commonPool()));
+      } else {
+        for (String path : exporter.exportEach(calendars, parts.get(2), from, to,
+            ForkJoinPool.commonPool())) {
+          view.display("Exported to: " + path);
+        }
+      }
     } catch (IOException e) {
       throw new IllegalArgumentException("Export failed: " + e.getMessage());
     }
   }
 
   private void handleShowBusy(List<String> parts) {
-    ZoneId timezone = calendarManager.getCurrentCalendar().getTimezone();
+    ZoneId timezone = session.getCurrentCalendar().getTimezone();
     ZonedDateTime time = parseDateTime(parts.get(2) + " " + parts.get(3), timezone);
-    view.display(calendarManager.getCurrentCalendar().isBusy(time) ? "Busy" : "Available");
+    view.display(session.getCurrentCalendar().isBusy(time) ? "Busy" : "Available");
+  }
+
+  private void handleShowBusyTime(List<String> parts) {
+    if (parts.size() < 9 || !parts.get(2).equals("time") || !parts.get(3).equals("from")
+        || !parts.get(6).equals("to")) {
+      throw new IllegalArgumentException("Invalid show busy time syntax");
+    }
+    ICalendar calendar = session.getCurrentCalendar();
+    ZonedDateTime from = parseDateTime(parts.get(4) + " " + parts.get(5), calendar.getTimezone());
+    ZonedDateTime to = parseDateTime(parts.get(7) + " " + parts.get(8), calendar.getTimezone());
+    view.display("Busy for " + calendar.getBusyDuration(from, to).toMinutes() + " minutes");
+  }
+
+  private void handleCount(List<String> parts) {
+    if (parts.size() < 7 || !parts.get(1).equals("events")) {
+      throw new IllegalArgumentException("Invalid count syntax");
+    }
+    ICalendar calendar = session.getCurrentCalendar();
+    if (parts.get(2).equals("per") && parts.get(3).equals("day") && parts.get(4).equals("from")
+        && parts.size() == 8 && parts.get(6).equals("to")) {
+      view.printDayCounts(calendar.countEventsPerDay(LocalDate.parse(parts.get(5)),
+          LocalDate.parse(parts.get(7))));
+      return;
+    }
+    if (parts.size() < 8 || !parts.get(2).equals("from") || !parts.get(5).equals("to")) {
+      throw new IllegalArgumentException("Invalid count syntax");
+    }
+    ZonedDateTime from = parseDateTime(parts.get(3) + " " + parts.get(4), calendar.getTimezone());
+    ZonedDateTime to = parseDateTime(parts.get(6) + " " + parts.get(7), calendar.getTimezone());
+    String subject = null;
+    if (parts.size() > 8) {
+      if (parts.size() != 10 || !parts.get(8).equals("--subject")) {
+        throw new IllegalArgumentException("Unknown parameter: " + parts.get(8));
+      }
+      subject = parts.get(9);
+    }
+    view.display(calendar.countEvents(from, to, subject) + " events");
+  }
+
+  private void handleFindSlots(List<String> parts) {
+    if (parts.size() < 9 || !parts.get(1).equals("slots") || !parts.get(2).equals("from")
+        || !parts.get(5).equals("to")) {
+      throw new IllegalArgumentException("Invalid find slots syntax");
+    }
+    ZoneId timezone = session.getCurrentCalendar().getTimezone();
+    ZonedDateTime from = parseDateTime(parts.get(3) + " " + parts.get(4), timezone);
+    ZonedDateTime to = parseDateTime(parts.get(6) + " " + parts.get(7), timezone);
+    Duration minDuration = null;
+    List<String> names = new ArrayList<>();
+    int index = 8;
+    while (index < parts.size()) {
+      switch (parts.get(index)) {
+        case "--duration":
+          minDuration = Duration.ofMinutes(Long.parseLong(parts.get(++index)));
+          break;
+        case "--calendars":
+          for (String name : parts.get(++index).split(",")) {
+            names.add(name.trim());
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown parameter: " + parts.get(index));
+      }
+      index++;
+    }
+    if (minDuration == null) {
+      throw new IllegalArgumentException("--duration required for find slots");
+    }
+    if (names.isEmpty()) {
+      names.add(session.getCurrentCalendar().getName());
+    }
+    view.printSlots(calendarManager.findFreeSlots(names, from, to, minDuration));
   }
 
   private ZonedDateTime parseDateTime(String dateTimeStr, ZoneId timezone) {
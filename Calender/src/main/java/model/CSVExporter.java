@@ -1,107 +1,553 @@
 package model;
 
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * This class is responsible for exporting calendar events to a CSV file format,
  * which is compatible with tools like Google Calendar or any CSV-compatible calendar app.
+ * Rows are formatted by hand into one reusable character buffer, which is encoded as UTF-8
+ * and written to the file in large blocks. Stored events are formatted straight from the
+ * columns of the calendar's event store, with wall-clock times from {@link ZoneOffsetCache},
+ * so they are exported without building any event or date-time object; only series
+ * occurrences are generated as events, one at a time.
  */
 public class CSVExporter {
 
-  // Formatter for dates (MM/dd/yyyy) and times (HH:mm:ss)
+  private static final String HEADER = "Subject,Start Date,Start Time,End Date,"
+      + "End Time,Location,Description,Private,ZoneID\n";
+
+  // Formatter for dates (MM/dd/yyyy), only used for years that do not fit in four digits
   private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
 
+  // Rows are written out once this many characters are buffered
+  private static final int FLUSH_CHARS = 1 << 16;
+
+  // Stored events per chunk of a parallel export, and chunks in flight per pool thread
+  private static final int CHUNK_EVENTS = 1 << 13;
+  private static final int CHUNKS_PER_THREAD = 4;
 
   /**
    * Exports all the events from a calendar to a CSV file.
    * The CSV file contains fields such as subject, start time, end time, location, etc.
+   * The export reads one snapshot of the calendar, so it sees a consistent set of events
+   * and never blocks writers.
    * @param calendar The calendar object that holds all events to export.
    * @param fileName The name of the output CSV file.
    * @return The absolute path of the generated CSV file.
    * @throws IOException If there is an issue writing to the file (e.g., file system issues).
    */
   public String export(Calendar calendar, String fileName) throws IOException {
-    // Generate the absolute path of the CSV file
-    String path = Paths.get(fileName).toAbsolutePath().toString();
-
-    // Try-with-resources to automatically close the FileWriter when done
-    try (FileWriter writer = new FileWriter(fileName)) {
-
-      // Write the CSV header row (columns)
-      writer.write("Subject,Start Date,Start Time,End Date,"
-          + "End Time,Location,Description,Private,ZoneID\n");
-
-      // Define a far range for events: from 100 years ago to 100 years into the future
-      ZonedDateTime farPast = ZonedDateTime.now().minusYears(100);
-      ZonedDateTime farFuture = ZonedDateTime.now().plusYears(100);
-
-      ZoneId zone = calendar.getTimezone();
-
-      // Loop through all events in the calendar within the far past and future range
-      for (IEvent e : calendar.getEventsInRange(farPast, farFuture)) {
-
-        // Process the subject and escape any special characters for CSV format
-        String subject = quoteField(e.getSubject());
-
-        // Convert event start time to EST and format it
-        ZonedDateTime startEST = e.getStart().withZoneSameInstant(zone);
-        String startDate = startEST.format(DATE_FORMAT);
-        String startTime = startEST.format(TIME_FORMAT);
-
-        // Handle the end time (if any) similarly to the start time
-        String endDate;
-        String endTime;
-        if (e.getEnd() != null) {
-          // Regular event with end time
-          ZonedDateTime endEST = e.getEnd().withZoneSameInstant(zone);
-          endDate = endEST.format(DATE_FORMAT);
-          endTime = endEST.format(TIME_FORMAT);
-        } else {
-          // If the event is all-day, we handle it differently
-          endDate = startDate;   // All-day event ends the same day
-          endTime = "";          // No specific end time for all-day events
-          startTime = "00:00";   // All-day events typically start at midnight
+    return export(calendar, fileName, null, null);
+  }
+
+  /**
+   * Exports the events of a calendar that overlap the window [from, to] to a CSV file: those
+   * ending after from and starting at or before to, including events only partly inside it.
+   * The events are looked up in the calendar's index, so events outside the window are never
+   * read.
+   * @param calendar The calendar object that holds the events to export.
+   * @param fileName The name of the output CSV file.
+   * @param from The start of the window, or null for 100 years ago.
+   * @param to The end of the window, or null for 100 years from now.
+   * @return The absolute path of the generated CSV file.
+   * @throws IOException If there is an issue writing to the file (e.g., file system issues).
+   */
+  public String export(Calendar calendar, String fileName, ZonedDateTime from, ZonedDateTime to)
+      throws IOException {
+    ZonedDateTime[] window = window(from, to);
+    Path path = Paths.get(fileName).toAbsolutePath();
+    exportSnapshot(calendar.snapshot(), path, window[0], window[1]);
+    return path.toString();
+  }
+
+  /**
+   * Exports all the events from a calendar to a CSV file like {@link #export(Calendar, String)},
+   * formatting them in parallel.
+   * @param calendar The calendar object that holds all events to export.
+   * @param fileName The name of the output CSV file.
+   * @param pool The pool that formats the events.
+   * @return The absolute path of the generated CSV file.
+   * @throws IOException If there is an issue writing to the file (e.g., file system issues).
+   */
+  public String export(Calendar calendar, String fileName, ForkJoinPool pool)
+      throws IOException {
+    return export(calendar, fileName, null, null, pool);
+  }
+
+  /**
+   * Exports the events of a calendar that overlap a window like
+   * {@link #export(Calendar, String, ZonedDateTime, ZonedDateTime)}, formatting them in
+   * parallel. The events are split by start time into chunks holding about the same number
+   * of stored events. Each chunk is formatted and encoded on the pool, and the chunks are
+   * written in order with positional writes as they complete, so the file is byte-identical
+   * to the sequential export. Only a few chunks per pool thread are held in memory at once.
+   * @param calendar The calendar object that holds the events to export.
+   * @param fileName The name of the output CSV file.
+   * @param from The start of the window, or null for 100 years ago.
+   * @param to The end of the window, or null for 100 years from now.
+   * @param pool The pool that formats the chunks.
+   * @return The absolute path of the generated CSV file.
+   * @throws IOException If there is an issue writing to the file (e.g., file system issues).
+   */
+  public String export(Calendar calendar, String fileName, ZonedDateTime from, ZonedDateTime to,
+      ForkJoinPool pool) throws IOException {
+    ZonedDateTime[] window = window(from, to);
+    Path path = Paths.get(fileName).toAbsolutePath();
+    CalendarSnapshot snapshot = calendar.snapshot();
+    long[] bounds = chunkBounds(snapshot, window[0], window[1]);
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      long position = write(channel, StandardCharsets.UTF_8.encode(HEADER), 0);
+      Deque<ForkJoinTask<ByteBuffer>> pending = new ArrayDeque<>();
+      int next = 0;
+      try {
+        while (next <= bounds.length || !pending.isEmpty()) {
+          while (next <= bounds.length
+              && pending.size() < CHUNKS_PER_THREAD * pool.getParallelism()) {
+            int chunk = next++;
+            pending.add(
+                pool.submit(() -> formatChunk(snapshot, bounds, chunk, window[0], window[1])));
+          }
+          position = write(channel, pending.poll().join(), position);
         }
+      } finally {
+        cancel(pending);
+      }
+    }
+    return path.toString();
+  }
 
-        // Process location and description, escaping special characters if needed
-        String location = quoteField(e.getLocation() != null ? e.getLocation() : "");
-        String description = quoteField(e.getDescription() != null ? e.getDescription() : "");
+  /**
+   * Exports several calendars at once, each to its own file named after the calendar in a
+   * directory, which is created if needed. Each calendar is exported like
+   * {@link #export(Calendar, String, ZonedDateTime, ZonedDateTime)} from a snapshot taken
+   * when the call starts, and the calendars are exported concurrently on the pool.
+   * @param calendars The calendars to export.
+   * @param directory The directory to write the files to.
+   * @param from The start of the window, or null for 100 years ago.
+   * @param to The end of the window, or null for 100 years from now.
+   * @param pool The pool that runs the exports.
+   * @return The absolute paths of the generated files, in the order of the calendars.
+   * @throws IOException If there is an issue writing to a file (e.g., file system issues).
+   * @throws IllegalArgumentException If two calendars would be written to the same file.
+   */
+  public List<String> exportEach(List<Calendar> calendars, String directory, ZonedDateTime from,
+      ZonedDateTime to, ForkJoinPool pool) throws IOException {
+    ZonedDateTime[] window = window(from, to);
+    List<String> names = fileNames(calendars);
+    Path dir = Files.createDirectories(Paths.get(directory).toAbsolutePath());
+    List<ForkJoinTask<String>> tasks = new ArrayList<>();
+    try {
+      for (int i = 0; i < calendars.size(); i++) {
+        CalendarSnapshot snapshot = calendars.get(i).snapshot();
+        Path path = dir.resolve(names.get(i));
+        tasks.add(pool.submit(() -> {
+          exportSnapshot(snapshot, path, window[0], window[1]);
+          return path.toString();
+        }));
+      }
+      List<String> paths = new ArrayList<>();
+      for (ForkJoinTask<String> task : tasks) {
+        paths.add(await(task));
+      }
+      return paths;
+    } finally {
+      cancel(tasks);
+    }
+  }
+
+  /**
+   * Exports several calendars into one zip archive holding a file per calendar, named after
+   * the calendar. The calendars are formatted concurrently on the pool from snapshots taken
+   * when the call starts, and their entries are written in the order of the calendars. A
+   * formatted calendar is held in memory until its entry is written, so this suits slices of
+   * calendars better than very large ones.
+   * @param calendars The calendars to export.
+   * @param fileName The name of the zip archive.
+   * @param from The start of the window, or null for 100 years ago.
+   * @param to The end of the window, or null for 100 years from now.
+   * @param pool The pool that formats the calendars.
+   * @return The absolute path of the generated archive.
+   * @throws IOException If there is an issue writing to the file (e.g., file system issues).
+   * @throws IllegalArgumentException If two calendars would get the same entry name.
+   */
+  public String exportZip(List<Calendar> calendars, String fileName, ZonedDateTime from,
+      ZonedDateTime to, ForkJoinPool pool) throws IOException {
+    ZonedDateTime[] window = window(from, to);
+    List<String> names = fileNames(calendars);
+    Path path = Paths.get(fileName).toAbsolutePath();
+    List<ForkJoinTask<ByteBuffer>> tasks = new ArrayList<>();
+    try (ZipOutputStream zip = new ZipOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), FLUSH_CHARS))) {
+      for (Calendar calendar : calendars) {
+        CalendarSnapshot snapshot = calendar.snapshot();
+        tasks.add(pool.submit(
+            () -> formatChunk(snapshot, new long[0], 0, window[0], window[1])));
+      }
+      byte[] header = HEADER.getBytes(StandardCharsets.UTF_8);
+      for (int i = 0; i < tasks.size(); i++) {
+        ByteBuffer rows = tasks.get(i).join();
+        zip.putNextEntry(new ZipEntry(names.get(i)));
+        zip.write(header);
+        zip.write(rows.array(), rows.arrayOffset() + rows.position(), rows.remaining());
+        zip.closeEntry();
+      }
+    } finally {
+      cancel(tasks);
+    }
+    return path.toString();
+  }
+
+  /**
+   * Writes the header and the rows of the events overlapping [from, to] to a file.
+   */
+  private static void exportSnapshot(CalendarSnapshot snapshot, Path path, ZonedDateTime from,
+      ZonedDateTime to) throws IOException {
+    // Try-with-resources to automatically close the channel when done
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      RowBuffer rows = new RowBuffer(snapshot.getTimezone(), channel);
+      rows.append(HEADER);
+
+      // Walk the events in the window, flushing as the buffer fills, so memory stays bounded
+      try {
+        snapshot.forEachStartingIn(from, to, Long.MIN_VALUE, Long.MAX_VALUE, rows);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      rows.writeTo(channel);
+    }
+  }
+
+  /**
+   * Fills in the open ends of a window with the far past and future and checks its order.
+   */
+  private static ZonedDateTime[] window(ZonedDateTime from, ZonedDateTime to) {
+    // Define a far range for events: from 100 years ago to 100 years into the future
+    ZonedDateTime start = from != null ? from : ZonedDateTime.now().minusYears(100);
+    ZonedDateTime end = to != null ? to : ZonedDateTime.now().plusYears(100);
+    if (end.isBefore(start)) {
+      throw new IllegalArgumentException("Window end cannot be before start");
+    }
+    return new ZonedDateTime[] {start, end};
+  }
 
-        // Determine the event's privacy setting (public or private)
-        String privacy = e.isPublic() ? "No" : "Yes";
+  /**
+   * Names the file of each calendar after the calendar, replacing characters that are not
+   * safe in file names.
+   */
+  private static List<String> fileNames(List<Calendar> calendars) {
+    List<String> names = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (Calendar calendar : calendars) {
+      String name = calendar.getName().replaceAll("[^A-Za-z0-9._-]", "_") + ".csv";
+      if (!seen.add(name)) {
+        throw new IllegalArgumentException("Calendars would share the export file " + name);
+      }
+      names.add(name);
+    }
+    return names;
+  }
 
-        // Write the event data into the CSV file in the appropriate format
-        writer.write(String.format("%s,%s,%s,%s,%s,%s,%s,%s.%s\n",
-            subject, startDate, startTime, endDate, endTime, location, description, privacy, zone));
+  private static <T> T await(ForkJoinTask<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Export interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
       }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static void cancel(Collection<? extends ForkJoinTask<?>> tasks) {
+    for (ForkJoinTask<?> task : tasks) {
+      task.cancel(false);
     }
-    // Return the absolute path of the generated file
-    return path;
   }
 
   /**
-   * Helper method to process a field and quote it if it contains special characters.
-   * CSV fields with commas, quotes, or newlines need to be properly escaped.
-   * @param field The field to process, which may contain commas, quotes, or newlines.
-   * @return The processed field, quoted and escaped if necessary.
+   * Picks the start seconds that split the stored events in the export window into chunks of
+   * CHUNK_EVENTS, by position in the snapshot's interval tree. Only bounds strictly inside
+   * the window are used, so the first and last chunks reach the window edges exactly as the
+   * sequential export does.
    */
-  private String quoteField(String field) {
-    if (field == null || field.isEmpty()) {
-      return ""; // Return an empty string if the field is null or empty
-    }
-    // If the field contains any special CSV characters (comma, quote, newline)
-    if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
-      // Escape the embedded quotes by replacing them with double quotes
-      field = field.replace("\"", "\"\"");
-      // Quote the field to make it valid in CSV format
-      return "\"" + field + "\"";
-    }
-    return field; // Return the field as-is if no special characters are present
+  private static long[] chunkBounds(CalendarSnapshot snapshot, ZonedDateTime from,
+      ZonedDateTime to) {
+    return snapshot.splitStarts(from.toEpochSecond(), to.toEpochSecond(), CHUNK_EVENTS);
+  }
+
+  /**
+   * Formats the rows of the events starting in one chunk, [bounds[chunk - 1], bounds[chunk]),
+   * where the first and last chunks reach out to the export window edges. With no bounds the
+   * one chunk is the whole window.
+   */
+  private static ByteBuffer formatChunk(CalendarSnapshot snapshot, long[] bounds, int chunk,
+      ZonedDateTime windowFrom, ZonedDateTime windowTo) {
+    long lo = chunk > 0 ? bounds[chunk - 1] : Long.MIN_VALUE;
+    long hi = chunk < bounds.length ? bounds[chunk] : Long.MAX_VALUE;
+    RowBuffer rows = new RowBuffer(snapshot.getTimezone(), null);
+    snapshot.forEachStartingIn(windowFrom, windowTo, lo, hi, rows);
+    return rows.encode();
+  }
+
+  private static long write(FileChannel channel, ByteBuffer bytes, long position)
+      throws IOException {
+    while (bytes.hasRemaining()) {
+      position += channel.write(bytes, position);
+    }
+    return position;
+  }
+
+  /**
+   * Formats CSV rows into a growable character buffer and encodes them to a file channel.
+   * Given a channel, the buffer writes itself out whenever a row fills it past FLUSH_CHARS.
+   */
+  private static final class RowBuffer implements CalendarSnapshot.EventVisitor {
+    private final ZoneId zone;
+    private final String zoneId;
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes;
+    private char[] chars = new char[2 * FLUSH_CHARS];
+    private int length;
+
+    RowBuffer(ZoneId zone, FileChannel channel) {
+      this.zone = zone;
+      this.zoneId = zone.getId();
+      this.channel = channel;
+    }
+
+    /**
+     * Appends the row of a stored event, read field by field from the store.
+     */
+    @Override
+    public void visitStored(EventStore events, int id) {
+      appendRow(events.subject(id), events.startSecond(id), events.endSecond(id),
+          events.isAllDay(id), events.location(id), events.description(id),
+          events.isPublic(id));
+    }
+
+    /**
+     * Appends the row of a series occurrence.
+     */
+    @Override
+    public void visitOccurrence(IEvent e) {
+      appendRow(e.getSubject(), Calendar.startSecond(e), Calendar.endSecond(e),
+          e.getEnd() == null, e.getLocation(), e.getDescription(), e.isPublic());
+    }
+
+    /**
+     * Appends the row of one event. All-day events start at 00:00 and have no end time.
+     */
+    private void appendRow(String subject, long startSecond, long endSecond, boolean allDay,
+        String location, String description, boolean isPublic) {
+      appendField(subject);
+      long start = ZoneOffsetCache.toLocalSecond(zone, startSecond);
+      ensureCapacity(64);
+      chars[length++] = ',';
+      appendDate(start);
+      chars[length++] = ',';
+      if (!allDay) {
+        long end = ZoneOffsetCache.toLocalSecond(zone, endSecond);
+        appendTime(start);
+        chars[length++] = ',';
+        appendDate(end);
+        chars[length++] = ',';
+        appendTime(end);
+      } else {
+        append("00:00,");
+        appendDate(start);
+        chars[length++] = ',';
+      }
+      chars[length++] = ',';
+      appendField(location);
+      append(",");
+      appendField(description);
+      append(isPublic ? ",No," : ",Yes,");
+      append(zoneId);
+      append("\n");
+      if (channel != null && length >= FLUSH_CHARS) {
+        try {
+          writeTo(channel);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    void append(String text) {
+      ensureCapacity(text.length());
+      text.getChars(0, text.length(), chars, length);
+      length += text.length();
+    }
+
+    /**
+     * Appends a field, quoting it in the same pass if it holds a comma, quote or newline.
+     * Embedded quotes are doubled. Null and empty fields are left empty.
+     */
+    private void appendField(String field) {
+      if (field == null) {
+        return;
+      }
+      int n = field.length();
+      ensureCapacity(2 * n + 2);
+      int start = length;
+      boolean quoted = false;
+      for (int i = 0; i < n; i++) {
+        char c = field.charAt(i);
+        if (!quoted && (c == ',' || c == '"' || c == '\n')) {
+          // Nothing before this point needed escaping, so the prefix just moves up by one
+          System.arraycopy(chars, start, chars, start + 1, i);
+          chars[start] = '"';
+          length++;
+          quoted = true;
+        }
+        if (c == '"') {
+          chars[length++] = '"';
+        }
+        chars[length++] = c;
+      }
+      if (quoted) {
+        chars[length++] = '"';
+      }
+    }
+
+    /**
+     * Appends the date of a local time as MM/dd/yyyy, converting the day count to a civil
+     * date with integer arithmetic.
+     */
+    private void appendDate(long localSecond) {
+      long day = Math.floorDiv(localSecond, 86400);
+      long shifted = day + 719468;
+      long era = Math.floorDiv(shifted, 146097);
+      long dayOfEra = shifted - era * 146097;
+      long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+      long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      // Years here start in March, so that the leap day is the last day of the year
+      long monthIndex = (5 * dayOfYear + 2) / 153;
+      int dayOfMonth = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+      int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+      long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+      if (year < 1 || year > 9999) {
+        append(LocalDate.ofEpochDay(day).format(DATE_FORMAT));
+        return;
+      }
+      ensureCapacity(10);
+      appendTwoDigits(month);
+      chars[length++] = '/';
+      appendTwoDigits(dayOfMonth);
+      chars[length++] = '/';
+      appendTwoDigits((int) year / 100);
+      appendTwoDigits((int) year % 100);
+    }
+
+    /**
+     * Appends the time of day of a local time as HH:mm:ss.
+     */
+    private void appendTime(long localSecond) {
+      int second = Math.floorMod(localSecond, 86400);
+      ensureCapacity(8);
+      appendTwoDigits(second / 3600);
+      chars[length++] = ':';
+      appendTwoDigits(second / 60 % 60);
+      chars[length++] = ':';
+      appendTwoDigits(second % 60);
+    }
+
+    private void appendTwoDigits(int value) {
+      chars[length++] = (char) ('0' + value / 10);
+      chars[length++] = (char) ('0' + value % 10);
+    }
+
+    private void ensureCapacity(int extra) {
+      if (length + extra > chars.length) {
+        char[] grown = new char[Math.max(2 * chars.length, length + extra)];
+        System.arraycopy(chars, 0, grown, 0, length);
+        chars = grown;
+      }
+    }
+
+    /**
+     * Encodes the buffered rows and writes them to the channel, emptying the buffer.
+     */
+    void writeTo(FileChannel channel) throws IOException {
+      if (bytes == null) {
+        bytes = ByteBuffer.allocateDirect(4 * FLUSH_CHARS);
+      }
+      CharBuffer in = CharBuffer.wrap(chars, 0, length);
+      encoder.reset();
+      CoderResult result;
+      do {
+        result = encoder.encode(in, bytes, true);
+        if (result.isError()) {
+          result.throwException();
+        }
+        drain(channel);
+      } while (result.isOverflow());
+      encoder.flush(bytes);
+      drain(channel);
+      length = 0;
+    }
+
+    /**
+     * Encodes the buffered rows into a new byte buffer ready to be written.
+     */
+    ByteBuffer encode() {
+      try {
+        return encoder.encode(CharBuffer.wrap(chars, 0, length));
+      } catch (CharacterCodingException e) {
+        // Cannot happen, bad input is replaced
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+      bytes.flip();
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      bytes.clear();
+    }
   }
 }
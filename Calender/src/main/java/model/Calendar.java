@@ -1,22 +1,90 @@
 package model;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.chrono.ChronoZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * Represents a single calendar with events.
+ * Events are kept in an event store, either as immutable records or packed into primitive
+ * columns, in insertion order and indexed by an interval tree over their start and end
+ * instants, so range queries only touch the events they return.
+ * The same tree walks events in start order for exact and nearest-start lookups, and answers
+ * day lookups as range queries over the days' span in the calendar's timezone.
+ * Recurring series are indexed once by their overall span and their occurrences are
+ * generated lazily, only for the windows that queries ask about.
+ * Events and series that overlap anything already in the calendar are declined.
+ * Subjects, locations and descriptions are deduplicated through a string dictionary,
+ * which may be shared between calendars.
+ * Each calendar guards its events with a read/write lock: queries run in parallel with each
+ * other and only wait for writers to this calendar. Every change also publishes an immutable
+ * {@link CalendarSnapshot}, and range and busy queries read the latest one without locking.
  */
 public class Calendar implements ICalendar {
-  private String name;
-  private ZoneId timezone;
-  private List<IEvent> events;
+  static final Comparator<IEvent> BY_START =
+      (a, b) -> ChronoZonedDateTime.timeLineOrder().compare(a.getStart(), b.getStart());
+
+  private volatile String name;
+  private volatile ZoneId timezone;
+  private EventStore events;
+  private IntervalTree index;
+  private List<RecurringEvent> series;
+  private IntervalTree seriesIndex;
+  private final StringDictionary strings;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicReference<CalendarSnapshot> snapshot = new AtomicReference<>();
+  // Copy of the series list taken when a series is added, shared by every snapshot until then
+  private List<RecurringEvent> publishedSeries = Collections.emptyList();
+  private long version;
+  private volatile RangeQueryCache rangeCache;
 
   public Calendar(String name, ZoneId timezone) {
+    this(name, timezone, StorageMode.OBJECTS);
+  }
+
+  /**
+   * Creates an empty calendar that stores its events in the given mode.
+   * @param name the name of the calendar.
+   * @param timezone the timezone of the calendar.
+   * @param mode whether events are kept as objects or packed into primitive columns.
+   */
+  public Calendar(String name, ZoneId timezone, StorageMode mode) {
+    this(name, timezone, mode, new StringDictionary());
+  }
+
+  /**
+   * Creates an empty calendar that stores its events in the given mode and deduplicates
+   * their text fields through the given dictionary.
+   * @param name the name of the calendar.
+   * @param timezone the timezone of the calendar.
+   * @param mode whether events are kept as objects or packed into primitive columns.
+   * @param strings the string dictionary, possibly shared with other calendars.
+   */
+  public Calendar(String name, ZoneId timezone, StorageMode mode, StringDictionary strings) {
     this.name = name;
     this.timezone = timezone;
-    this.events = new ArrayList<>();
+    this.strings = strings;
+    this.events = mode == StorageMode.COLUMNAR
+        ? new ColumnarEventStore(strings) : new ObjectEventStore(strings);
+    this.index = new IntervalTree();
+    this.series = new ArrayList<>();
+    this.seriesIndex = new IntervalTree();
+    publish();
   }
 
   @Override
@@ -29,71 +97,636 @@ public class Calendar implements ICalendar {
     this.name = name;
   }
 
+  /**
+   * Gets the dictionary that deduplicates the text fields of this calendar's events.
+   * @return the string dictionary.
+   */
+  public StringDictionary getStringDictionary() {
+    return strings;
+  }
+
+  /**
+   * Releases the dictionary references held by this calendar's events and series, for a
+   * calendar that is being dropped from a dictionary it shares with others. Snapshots keep
+   * their strings; the dictionary just stops handing them out.
+   */
+  void releaseStrings() {
+    lock.writeLock().lock();
+    try {
+      for (int id = 0; id < events.size(); id++) {
+        strings.releaseFields(events.get(id));
+      }
+      for (RecurringEvent recurring : series) {
+        strings.releaseFields(recurring);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
   @Override
   public ZoneId getTimezone() {
     return timezone;
   }
 
+  /**
+   * Changes the timezone of the calendar and converts every stored event to it in one pass,
+   * so later reads get events already in the calendar's zone. Recurring series keep the
+   * zone their weekly pattern is defined in, but hand out their occurrences in the new one.
+   */
   @Override
   public void setTimezone(ZoneId timezone) {
-    this.timezone = timezone;
+    lock.writeLock().lock();
+    try {
+      this.timezone = timezone;
+      // Stored events are shown in the calendar's zone from now on, converted once here
+      events.rezone(timezone);
+      for (int id = 0; id < series.size(); id++) {
+        replaceSeries(id, series.get(id).inZone(timezone));
+      }
+      publish();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the latest published snapshot of the calendar. It never changes, so any number
+   * of threads can query it without locking while the calendar keeps changing.
+   * @return the current snapshot.
+   */
+  public CalendarSnapshot snapshot() {
+    return snapshot.get();
   }
 
   @Override
   public boolean addEvent(IEvent event) {
-    events.add(event);
-    return true;
+    lock.writeLock().lock();
+    try {
+      if (conflicts(event)) {
+        return false;
+      }
+      insert(event);
+      publish();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a batch of events at once, declining any that overlap the calendar or an earlier
+   * event of the same batch. The batch is sorted once, checked in start order and then
+   * appended with a single bulk update of each index.
+   */
+  @Override
+  public List<IEvent> addEvents(Collection<? extends IEvent> batch) {
+    lock.writeLock().lock();
+    try {
+      List<IEvent> sorted = new ArrayList<>(batch);
+      sorted.sort(BY_START);
+      List<IEvent> declined = new ArrayList<>();
+      long[] starts = new long[sorted.size()];
+      long[] ends = new long[sorted.size()];
+      int[] ids = new int[sorted.size()];
+      int count = 0;
+      // The accepted batch event reaching furthest; in start order only it can clash
+      int furthest = -1;
+      for (IEvent event : sorted) {
+        long start = startSecond(event);
+        long end = endSecond(event);
+        boolean clashes = furthest >= 0 && starts[furthest] < end && ends[furthest] > start;
+        if (clashes || conflicts(event)) {
+          declined.add(event);
+          continue;
+        }
+        starts[count] = start;
+        ends[count] = end;
+        ids[count] = events.add(event);
+        if (furthest < 0 || end > ends[furthest]) {
+          furthest = count;
+        }
+        count++;
+      }
+      index.insertSorted(starts, ends, ids, count);
+      publish();
+      return declined;
+    } finally {
+      lock.writeLock().unlock();
+    }
   }
 
   @Override
   public boolean addRecurringEvent(RecurringEvent recurringEvent) {
-    events.add(recurringEvent);
-    return true;
+    lock.writeLock().lock();
+    try {
+      if (conflicts(recurringEvent)) {
+        return false;
+      }
+      strings.internFields(recurringEvent);
+      series.add(recurringEvent);
+      indexSeries(series.size() - 1);
+      publishedSeries = Collections.unmodifiableList(new ArrayList<>(series));
+      publish();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
   }
 
+  /**
+   * Reports every overlap between the occurrences of a series and the calendar's events
+   * and series, without adding the series.
+   */
+  @Override
+  public List<Conflict> findConflicts(RecurringEvent recurringEvent) {
+    lock.readLock().lock();
+    try {
+      return conflictsOf(recurringEvent, Integer.MAX_VALUE);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the events that end after from and start at or before to, ordered by start.
+   * Read from the current snapshot without locking, through the range cache if one is set.
+   */
   @Override
   public List<IEvent> getEventsInRange(ZonedDateTime from, ZonedDateTime to) {
-    List<IEvent> result = new ArrayList<>();
-    for (IEvent event : events) {
-      if (event.getStart().isAfter(from) && (event.getEnd() == null || event.getEnd().isBefore(to))) {
-        result.add(event);
+    CalendarSnapshot current = snapshot();
+    RangeQueryCache cache = rangeCache;
+    if (cache == null) {
+      return current.getEventsInRange(from, to);
+    }
+    return cache.get(this, current.getVersion(), from, to,
+        () -> current.getEventsInRange(from, to));
+  }
+
+  /**
+   * Returns the events touching the dates from and to, inclusive, in the calendar's zone,
+   * ordered by start: the events covering some part of those days. Stored events come from
+   * one interval tree query over the days, already in start order, so the cost depends only
+   * on the events in those days.
+   */
+  @Override
+  public List<IEvent> getEventsOnDays(LocalDate from, LocalDate to) {
+    lock.readLock().lock();
+    try {
+      List<IEvent> result = new ArrayList<>();
+      index.query(from.atStartOfDay(timezone).toEpochSecond(),
+          to.plusDays(1).atStartOfDay(timezone).toEpochSecond(),
+          id -> result.add(events.get(id)));
+      ZonedDateTime start = from.atStartOfDay(timezone);
+      ZonedDateTime end = to.plusDays(1).atStartOfDay(timezone).minusSeconds(1);
+      int stored = result.size();
+      for (RecurringEvent recurring : seriesOverlapping(start.toEpochSecond(),
+          end.toEpochSecond() + 1)) {
+        result.addAll(recurring.getInstances(start, end));
+      }
+      if (result.size() > stored) {
+        result.sort(BY_START);
       }
+      return result;
+    } finally {
+      lock.readLock().unlock();
     }
-    return result;
   }
 
   @Override
-  public boolean isBusy(ZonedDateTime time) {
-    for (IEvent event : events) {
-      if (event.getStart().isBefore(time) && (event.getEnd() == null || event.getEnd().isAfter(time))) {
-        return true;
+  public long countEvents(ZonedDateTime from, ZonedDateTime to, String subject) {
+    return snapshot().countEvents(from, to, subject);
+  }
+
+  @Override
+  public Duration getBusyDuration(ZonedDateTime from, ZonedDateTime to) {
+    return snapshot().getBusyDuration(from, to);
+  }
+
+  /**
+   * Counts, for every date from and to inclusive, the events touching that day in the
+   * calendar's zone, as {@link #getEventsOnDays} would list them. Stored events are counted
+   * from their start and end seconds without building any event; only series occurrences
+   * are generated.
+   */
+  @Override
+  public SortedMap<LocalDate, Integer> countEventsPerDay(LocalDate from, LocalDate to) {
+    lock.readLock().lock();
+    try {
+      SortedMap<LocalDate, Integer> counts = new TreeMap<>();
+      for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+        counts.put(day, 0);
+      }
+      if (counts.isEmpty()) {
+        return counts;
       }
+      ZonedDateTime start = from.atStartOfDay(timezone);
+      ZonedDateTime end = to.plusDays(1).atStartOfDay(timezone).minusSeconds(1);
+      index.query(start.toEpochSecond(), end.toEpochSecond() + 1,
+          id -> countDays(counts, events.startSecond(id), events.endSecond(id)));
+      for (RecurringEvent recurring : seriesOverlapping(start.toEpochSecond(),
+          end.toEpochSecond() + 1)) {
+        Iterator<Event> occurrences = recurring.stream(start, end).iterator();
+        while (occurrences.hasNext()) {
+          Event occurrence = occurrences.next();
+          countDays(counts, startSecond(occurrence), endSecond(occurrence));
+        }
+      }
+      return counts;
+    } finally {
+      lock.readLock().unlock();
     }
-    return false;
   }
 
+  /**
+   * Puts a result cache in front of range queries, or removes it. Results are cached per
+   * calendar version, so every change to the calendar invalidates them.
+   */
+  @Override
+  public void setRangeCache(RangeQueryCache cache) {
+    this.rangeCache = cache;
+  }
+
+  /**
+   * Lazily streams the events that end after from and start at or before to, ordered by start,
+   * from the snapshot current when the stream is created. The calendar can be changed while
+   * the stream is consumed.
+   */
+  @Override
+  public Stream<IEvent> streamEventsInRange(ZonedDateTime from, ZonedDateTime to) {
+    return snapshot().streamEventsInRange(from, to);
+  }
+
+  /**
+   * Checks whether any event covers the given time, counting an event as busy from its
+   * start up to but not including its end. Read from the current snapshot without locking.
+   */
+  @Override
+  public boolean isBusy(ZonedDateTime time) {
+    return snapshot().isBusy(time);
+  }
+
+  /**
+   * Edits the events starting at the given instant. A series whose first occurrence starts
+   * there is edited as a whole; any other series occurrence starting there is replaced by an
+   * edited exception. Either way the series is replaced by an edited copy, so published
+   * snapshots keep the series they hold unchanged.
+   * @throws IllegalArgumentException if no event or occurrence starts at the instant.
+   */
   @Override
   public void editEventInstance(ZonedDateTime start, String property, String value) {
-    for (IEvent event : events) {
-      if (event.getStart().equals(start)) {
-        switch (property.toLowerCase()) {
-          case "name":
-            event.setSubject(value);
-            break;
-          default:
-            throw new IllegalArgumentException("Unknown property: " + property);
+    String field = checkProperty(property);
+    lock.writeLock().lock();
+    try {
+      List<Integer> stored = idsStartingAt(start);
+      boolean found = !stored.isEmpty();
+      for (int id : stored) {
+        editStored(id, field, value);
+      }
+      for (int id : seriesIdsOverlapping(start.toEpochSecond(), start.toEpochSecond() + 1)) {
+        RecurringEvent recurring = series.get(id);
+        // A series start on a day outside its pattern is not an occurrence
+        Event occurrence = recurring.getOccurrenceAtOrAfter(start);
+        if (occurrence == null || !occurrence.getStart().isEqual(start)) {
+          continue;
+        }
+        found = true;
+        if (recurring.getStart().isEqual(start)) {
+          replaceSeries(id, editSeries(recurring.copy(), field, value));
+          continue;
+        }
+        editOccurrence(occurrence, field, value);
+        RecurringEvent edited = recurring.copy();
+        edited.addException(start, occurrence);
+        replaceSeries(id, edited);
+      }
+      if (!found) {
+        throw new IllegalArgumentException("No event starts at " + start);
+      }
+      publish();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Edits every event with the given subject that starts at or after from. A series starting
+   * then or later is edited as a whole, and one that started earlier is split at from so that
+   * only its remaining occurrences change; no series is expanded into single occurrences.
+   * Occurrences that were renamed on their own are matched by the subject they now carry.
+   * Edited series are copies, so published snapshots keep showing the old ones.
+   */
+  @Override
+  public int editEvents(String subject, ZonedDateTime from, String property, String value) {
+    String field = checkProperty(property);
+    lock.writeLock().lock();
+    try {
+      int edited = 0;
+      long fromSecond = from.toEpochSecond();
+      PrimitiveIterator.OfInt ids = index.startingFrom(fromSecond);
+      while (ids.hasNext()) {
+        int id = ids.nextInt();
+        if (subject.equals(events.subject(id)) && (events.startSecond(id) > fromSecond
+            || !events.get(id).getStart().isBefore(from))) {
+          editStored(id, field, value);
+          edited++;
+        }
+      }
+      boolean split = false;
+      for (int id : seriesIdsOverlapping(fromSecond, Long.MAX_VALUE)) {
+        RecurringEvent recurring = series.get(id);
+        if (!subject.equals(recurring.getSubject())) {
+          // Occurrences renamed on their own still carry the subject they were given
+          RecurringEvent copy = recurring.copy();
+          if (editExceptions(copy, subject, from, field, value) > 0) {
+            replaceSeries(id, copy);
+            edited++;
+          }
+          continue;
+        }
+        RecurringEvent[] parts = recurring.splitAt(from);
+        if (parts[1] == null) {
+          continue;
+        }
+        editSeries(parts[1], field, value);
+        if (parts[0] == null) {
+          replaceSeries(id, parts[1]);
+        } else {
+          replaceSeries(id, parts[0]);
+          strings.internFields(parts[1]);
+          series.add(parts[1]);
+          split = true;
+        }
+        edited++;
+      }
+      if (split) {
+        // The split series now end earlier, so their spans are indexed afresh
+        seriesIndex = new IntervalTree();
+        for (int id = 0; id < series.size(); id++) {
+          indexSeries(id);
         }
+        publishedSeries = Collections.unmodifiableList(new ArrayList<>(series));
+      }
+      if (edited > 0) {
+        publish();
       }
+      return edited;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Checks that a property can be edited, before anything is changed.
+   * @return the property name in lower case.
+   */
+  private static String checkProperty(String property) {
+    String field = property.toLowerCase();
+    switch (field) {
+      case "name":
+        return field;
+      default:
+        throw new IllegalArgumentException("Unknown property: " + property);
     }
   }
 
+  private void editStored(int id, String field, String value) {
+    if (field.equals("name")) {
+      events.setSubject(id, value);
+    }
+  }
+
+  private static void editOccurrence(Event occurrence, String field, String value) {
+    if (field.equals("name")) {
+      occurrence.setSubject(value);
+    }
+  }
+
+  private static int editExceptions(RecurringEvent recurring, String subject,
+      ZonedDateTime from, String field, String value) {
+    return field.equals("name") ? recurring.renameExceptions(subject, from, value) : 0;
+  }
+
+  private RecurringEvent editSeries(RecurringEvent recurring, String field, String value) {
+    if (field.equals("name")) {
+      recurring.rename(value);
+    }
+    return recurring;
+  }
+
+  /**
+   * Puts a changed copy of a series in its place, moving the dictionary references from the
+   * old series to the copy. The series index is left as it is, so a caller that changes the
+   * span of the series indexes it again.
+   */
+  private void replaceSeries(int id, RecurringEvent recurring) {
+    strings.internFields(recurring);
+    strings.releaseFields(series.set(id, recurring));
+    publishedSeries = Collections.unmodifiableList(new ArrayList<>(series));
+  }
+
   @Override
   public Event getEventAt(ZonedDateTime start) {
-    for (IEvent event : events) {
-      if (event.getStart().equals(start)) {
-        return (Event) event;
+    lock.readLock().lock();
+    try {
+      List<Integer> found = idsStartingAt(start);
+      if (!found.isEmpty()) {
+        return (Event) events.get(found.get(0));
       }
+      for (RecurringEvent recurring : seriesCovering(start)) {
+        for (Event occurrence : recurring.getInstances(start, start)) {
+          if (occurrence.getStart().isEqual(start)) {
+            return occurrence;
+          }
+        }
+      }
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the earliest event starting at or after the given time, or null if there is none.
+   */
+  @Override
+  public Event getNextEvent(ZonedDateTime time) {
+    lock.readLock().lock();
+    try {
+      Event next = null;
+      PrimitiveIterator.OfInt ids = index.startingFrom(time.toEpochSecond());
+      while (ids.hasNext() && next == null) {
+        int id = ids.nextInt();
+        if (events.startSecond(id) > time.toEpochSecond()
+            || !events.get(id).getStart().isBefore(time)) {
+          next = (Event) events.get(id);
+        }
+      }
+      // Only series still running before the best stored candidate can beat it
+      long bound = next != null ? startSecond(next) + 1 : Long.MAX_VALUE;
+      for (RecurringEvent recurring : seriesOverlapping(time.toEpochSecond(), bound)) {
+        Event occurrence = recurring.getOccurrenceAtOrAfter(time);
+        if (occurrence != null
+            && (next == null || occurrence.getStart().isBefore(next.getStart()))) {
+          next = occurrence;
+        }
+      }
+      return next;
+    } finally {
+      lock.readLock().unlock();
     }
-    return null;
   }
-}
\ No newline at end of file
+
+  /**
+   * Checks an event against the stored events with one indexed overlap search, then against
+   * the occurrences of only those series whose span reaches the event.
+   */
+  private boolean conflicts(IEvent event) {
+    long start = startSecond(event);
+    long end = endSecond(event);
+    if (index.overlaps(start, end)) {
+      return true;
+    }
+    for (RecurringEvent recurring : seriesOverlapping(start, end)) {
+      if (recurring.conflictsWith(event)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean conflicts(RecurringEvent recurring) {
+    return !conflictsOf(recurring, 1).isEmpty();
+  }
+
+  /**
+   * Sweeps the occurrences of a series against the stored events in start order, keeping
+   * the events that have started but not yet ended in a heap ordered by end. Each stored
+   * event enters and leaves the heap once, so one pass finds every overlapping pair, and
+   * the sweep stops as soon as the limit is reached or the occurrences pass the last stored
+   * end. Series already in the calendar are then merged against the new one.
+   */
+  private List<Conflict> conflictsOf(RecurringEvent recurring, int limit) {
+    List<Conflict> found = new ArrayList<>();
+    long seriesStart = startSecond(recurring);
+    long lastEnd = index.maxEnd();
+    PriorityQueue<long[]> active = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+    index.query(seriesStart, seriesStart, id -> active.add(new long[] {events.endSecond(id), id}));
+    PrimitiveIterator.OfInt cursor = index.startingFrom(seriesStart);
+    Integer next = cursor.hasNext() ? cursor.nextInt() : null;
+    Iterator<Event> occurrences = recurring.iterator(recurring.getStart());
+    while (occurrences.hasNext() && found.size() < limit) {
+      Event occurrence = occurrences.next();
+      long start = startSecond(occurrence);
+      long end = endSecond(occurrence);
+      if (start >= lastEnd) {
+        break;
+      }
+      while (next != null && events.startSecond(next) < end) {
+        active.add(new long[] {events.endSecond(next), next});
+        next = cursor.hasNext() ? cursor.nextInt() : null;
+      }
+      while (!active.isEmpty() && active.peek()[0] <= start) {
+        active.poll();
+      }
+      for (long[] entry : active) {
+        if (found.size() < limit) {
+          found.add(new Conflict(occurrence, events.get((int) entry[1])));
+        }
+      }
+    }
+    ZonedDateTime seriesEnd = recurring.getSeriesEnd();
+    for (RecurringEvent other : seriesOverlapping(seriesStart,
+        seriesEnd != null ? seriesEnd.toEpochSecond() : Long.MAX_VALUE)) {
+      if (found.size() < limit) {
+        found.addAll(recurring.seriesConflicts(other, limit - found.size()));
+      }
+    }
+    return found;
+  }
+
+  private List<RecurringEvent> seriesOverlapping(long start, long end) {
+    List<RecurringEvent> found = new ArrayList<>();
+    seriesIndex.query(start, end, id -> found.add(series.get(id)));
+    return found;
+  }
+
+  private List<Integer> seriesIdsOverlapping(long start, long end) {
+    List<Integer> found = new ArrayList<>();
+    seriesIndex.query(start, end, found::add);
+    return found;
+  }
+
+  private void indexSeries(int id) {
+    RecurringEvent recurring = series.get(id);
+    ZonedDateTime seriesEnd = recurring.getSeriesEnd();
+    seriesIndex.insert(startSecond(recurring),
+        seriesEnd != null ? seriesEnd.toEpochSecond() : Long.MAX_VALUE, id);
+  }
+
+  /**
+   * Finds the series whose span covers the given instant; they may have an occurrence there.
+   */
+  private List<RecurringEvent> seriesCovering(ZonedDateTime time) {
+    return seriesOverlapping(time.toEpochSecond(), time.toEpochSecond() + 1);
+  }
+
+  /**
+   * Looks up the events starting at the given instant, whatever zone it is expressed in,
+   * by walking the interval tree from that start.
+   */
+  private List<Integer> idsStartingAt(ZonedDateTime start) {
+    List<Integer> found = new ArrayList<>();
+    PrimitiveIterator.OfInt ids = index.startingFrom(start.toEpochSecond());
+    while (ids.hasNext()) {
+      int id = ids.nextInt();
+      if (events.startSecond(id) != start.toEpochSecond()) {
+        break;
+      }
+      if (events.startsAt(id, start)) {
+        found.add(id);
+      }
+    }
+    return found;
+  }
+
+  private void insert(IEvent event) {
+    int id = events.add(event);
+    index.insert(startSecond(event), endSecond(event), id);
+  }
+
+  /**
+   * Adds one to the count of every counted date in the calendar's zone that the span
+   * [start, end) covers.
+   */
+  private void countDays(SortedMap<LocalDate, Integer> counts, long start, long end) {
+    LocalDate day = ZoneOffsetCache.toLocalDate(timezone, start);
+    LocalDate last = ZoneOffsetCache.toLocalDate(timezone, Math.max(start, end - 1));
+    if (day.isBefore(counts.firstKey())) {
+      day = counts.firstKey();
+    }
+    if (last.isAfter(counts.lastKey())) {
+      last = counts.lastKey();
+    }
+    for (; !day.isAfter(last); day = day.plusDays(1)) {
+      counts.computeIfPresent(day, (k, n) -> n + 1);
+    }
+  }
+
+  /**
+   * Publishes the current state as a new snapshot. Called with the write lock held.
+   */
+  private void publish() {
+    snapshot.set(new CalendarSnapshot(version++, timezone, events.snapshot(), index.copy(),
+        publishedSeries, seriesIndex.copy()));
+  }
+
+  static long startSecond(IEvent event) {
+    return event.getStart().toEpochSecond();
+  }
+
+  static long endSecond(IEvent event) {
+    ZonedDateTime end = event.getEnd() != null ? event.getEnd() : event.getStart().plusDays(1);
+    return end.toEpochSecond();
+  }
+}
@@ -1,36 +1,82 @@
 package model;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZoneId;
-import java.util.HashMap;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages multiple calendars, each with a unique name and timezone.
  * Ensures that there is always at least one calendar and that names are unique.
+ * A manager can be shared between threads: lookups go straight to a concurrent map,
+ * changes to the set of calendars are serialized on the manager, and each calendar
+ * locks its own events. Clients that each need their own current calendar should work
+ * through a {@link CalendarSession}; the manager's current calendar is where new
+ * sessions start.
  */
 public class CalendarManager {
   private final Map<String, ICalendar> calendars;
-  private ICalendar currentCalendar;
+  private volatile ICalendar currentCalendar;
+  private final StringDictionary strings = new StringDictionary();
+  private volatile RangeQueryCache rangeCache;
 
   /**
    * Initializes the CalendarManager with a default calendar.
    */
   public CalendarManager() {
-    calendars = new HashMap<>();
-    ICalendar defaultCalendar = new Calendar("default", ZoneId.of("America/New_York"));
+    calendars = new ConcurrentHashMap<>();
+    ICalendar defaultCalendar = new Calendar("default", ZoneId.of("America/New_York"),
+        StorageMode.OBJECTS, strings);
     calendars.put("default", defaultCalendar);
     currentCalendar = defaultCalendar;
   }
 
-  public void createCalendar(String name, ZoneId timezone) {
+  public synchronized void createCalendar(String name, ZoneId timezone) {
     if (calendars.containsKey(name)) {
       throw new IllegalArgumentException("Calendar name already exists");
     }
-    ICalendar calendar = new Calendar(name, timezone);
+    ICalendar calendar = new Calendar(name, timezone, StorageMode.OBJECTS, strings);
+    calendar.setRangeCache(rangeCache);
     calendars.put(name, calendar);
   }
 
-  public void setCurrentCalendar(String name) {
+  /**
+   * Gets the string dictionary shared by all calendars of this manager, so the same subject
+   * or location copied between calendars is stored once.
+   * @return the shared string dictionary.
+   */
+  public StringDictionary getStringDictionary() {
+    return strings;
+  }
+
+  /**
+   * Shares one range query cache between all calendars, including those created later,
+   * or turns caching off.
+   * @param cache the cache to use, or null to disable caching.
+   */
+  public synchronized void setRangeCache(RangeQueryCache cache) {
+    this.rangeCache = cache;
+    for (ICalendar calendar : calendars.values()) {
+      calendar.setRangeCache(cache);
+    }
+  }
+
+  /**
+   * Gets the range query cache shared by the calendars, if any.
+   * @return the cache, or null if caching is off.
+   */
+  public RangeQueryCache getRangeCache() {
+    return rangeCache;
+  }
+
+  public synchronized void setCurrentCalendar(String name) {
     ICalendar calendar = calendars.get(name);
     if (calendar == null) {
       throw new IllegalArgumentException("Calendar not found");
@@ -42,6 +88,16 @@ public class CalendarManager {
     return currentCalendar;
   }
 
+  /**
+   * Lists the names of all calendars.
+   * @return the calendar names in alphabetical order.
+   */
+  public List<String> getCalendarNames() {
+    List<String> names = new ArrayList<>(calendars.keySet());
+    Collections.sort(names);
+    return names;
+  }
+
   public ICalendar getCalendar(String name) {
     ICalendar calendar = calendars.get(name);
     if (calendar == null) {
@@ -50,22 +106,33 @@ public class CalendarManager {
     return calendar;
   }
 
-  public void renameCalendar(String oldName, String newName) {
+  public synchronized void renameCalendar(String oldName, String newName) {
     if (calendars.containsKey(newName)) {
       throw new IllegalArgumentException("Calendar name already exists");
     }
-    ICalendar calendar = calendars.remove(oldName);
+    ICalendar calendar = calendars.get(oldName);
     if (calendar == null) {
       throw new IllegalArgumentException("Calendar not found");
     }
-    calendar.setName(newName);
+    // The calendar stays reachable under its current name throughout, for lock-free readers
     calendars.put(newName, calendar);
+    calendar.setName(newName);
+    calendars.remove(oldName);
     if (currentCalendar == calendar) {
       currentCalendar = calendar;
     }
   }
 
-  public void deleteCalendar(String name) {
+  /**
+   * Checks whether a calendar still belongs to this manager, i.e. has not been deleted.
+   * @param calendar the calendar to look for.
+   * @return true if the manager holds the calendar under its current name.
+   */
+  boolean holds(ICalendar calendar) {
+    return calendar != null && calendars.get(calendar.getName()) == calendar;
+  }
+
+  public synchronized void deleteCalendar(String name) {
     if (calendars.size() <= 1) {
       throw new IllegalArgumentException("Cannot delete the last calendar");
     }
@@ -73,8 +140,80 @@ public class CalendarManager {
     if (calendar == null) {
       throw new IllegalArgumentException("Calendar not found");
     }
+    if (calendar instanceof Calendar) {
+      ((Calendar) calendar).releaseStrings();
+    }
     if (currentCalendar == calendar) {
       currentCalendar = calendars.values().iterator().next();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Finds the gaps in [from, to] during which every named calendar is free.
+   * Each calendar's events in the window arrive sorted by start, and the lists are k-way
+   * merged through a heap in a single sweep that tracks how far the busy time reaches.
+   * @param names the calendars that must all be free.
+   * @param from the start of the search window.
+   * @param to the end of the search window.
+   * @param minDuration the shortest gap worth reporting.
+   * @return the free slots in time order, expressed in the zone of {@code from}.
+   */
+  public List<TimeSlot> findFreeSlots(List<String> names, ZonedDateTime from, ZonedDateTime to,
+      Duration minDuration) {
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("Window end cannot be before start");
+    }
+    PriorityQueue<SlotCursor> heap = new PriorityQueue<>(Comparator.comparingLong(c -> c.start));
+    for (String name : names) {
+      SlotCursor cursor = new SlotCursor(getCalendar(name).getEventsInRange(from, to));
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+    }
+    List<TimeSlot> slots = new ArrayList<>();
+    long windowEnd = to.toEpochSecond();
+    long freeFrom = from.toEpochSecond();
+    while (!heap.isEmpty() && freeFrom < windowEnd) {
+      SlotCursor cursor = heap.poll();
+      addSlot(slots, freeFrom, Math.min(cursor.start, windowEnd), minDuration, from);
+      freeFrom = Math.max(freeFrom, cursor.end);
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+    }
+    addSlot(slots, freeFrom, windowEnd, minDuration, from);
+    return slots;
+  }
+
+  private static void addSlot(List<TimeSlot> slots, long start, long end, Duration minDuration,
+      ZonedDateTime zoneOf) {
+    if (end > start && end - start >= minDuration.getSeconds()) {
+      slots.add(new TimeSlot(Instant.ofEpochSecond(start).atZone(zoneOf.getZone()),
+          Instant.ofEpochSecond(end).atZone(zoneOf.getZone())));
+    }
+  }
+
+  /**
+   * Walks one calendar's events in start order, exposing the current event's span in seconds.
+   */
+  private static class SlotCursor {
+    private final List<IEvent> events;
+    private int next;
+    private long start;
+    private long end;
+
+    SlotCursor(List<IEvent> events) {
+      this.events = events;
+    }
+
+    boolean advance() {
+      if (next >= events.size()) {
+        return false;
+      }
+      IEvent event = events.get(next++);
+      start = Calendar.startSecond(event);
+      end = Calendar.endSecond(event);
+      return true;
+    }
+  }
+}
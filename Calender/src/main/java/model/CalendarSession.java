@@ -0,0 +1,53 @@
+package model;
+
+/**
+ * The state of one client working with a shared CalendarManager: which calendar its
+ * commands apply to. Each client keeps its own session, so switching calendars never
+ * touches state shared with other clients.
+ * A session is meant to be used by one client at a time.
+ */
+public class CalendarSession {
+  private final CalendarManager manager;
+  private ICalendar current;
+
+  /**
+   * Starts a session on the manager's current calendar.
+   * @param manager the manager holding the calendars.
+   */
+  public CalendarSession(CalendarManager manager) {
+    if (manager == null) {
+      throw new IllegalArgumentException("Calendar manager cannot be null");
+    }
+    this.manager = manager;
+    this.current = manager.getCurrentCalendar();
+  }
+
+  /**
+   * Gets the manager this session works with.
+   * @return the calendar manager.
+   */
+  public CalendarManager getManager() {
+    return manager;
+  }
+
+  /**
+   * Switches this session to another calendar.
+   * @param name the name of the calendar.
+   * @throws IllegalArgumentException if the calendar does not exist.
+   */
+  public void useCalendar(String name) {
+    current = manager.getCalendar(name);
+  }
+
+  /**
+   * Gets the calendar this session's commands apply to. If the calendar has since been
+   * deleted, the session moves to the manager's current calendar.
+   * @return the current calendar of the session.
+   */
+  public ICalendar getCurrentCalendar() {
+    if (!manager.holds(current)) {
+      current = manager.getCurrentCalendar();
+    }
+    return current;
+  }
+}
@@ -0,0 +1,348 @@
+package model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable view of a calendar at one point in time.
+ * A calendar publishes a new snapshot after every change. The snapshot shares the
+ * calendar's persistent interval trees and a read-only view of its event store, so
+ * publishing costs a few allocations and reading needs no locks.
+ */
+public final class CalendarSnapshot {
+  private final long version;
+  private final ZoneId timezone;
+  private final EventStore events;
+  private final IntervalTree index;
+  private final List<RecurringEvent> series;
+  private final IntervalTree seriesIndex;
+
+  CalendarSnapshot(long version, ZoneId timezone, EventStore events, IntervalTree index,
+      List<RecurringEvent> series, IntervalTree seriesIndex) {
+    this.version = version;
+    this.timezone = timezone;
+    this.events = events;
+    this.index = index;
+    this.series = series;
+    this.seriesIndex = seriesIndex;
+  }
+
+  /**
+   * Gets the version of the calendar this snapshot shows. Every change to the calendar
+   * publishes a snapshot with a higher version.
+   * @return the calendar version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets the timezone the calendar had when the snapshot was taken.
+   * @return the calendar timezone.
+   */
+  public ZoneId getTimezone() {
+    return timezone;
+  }
+
+  /**
+   * Gets the number of non-recurring events in the snapshot.
+   * @return the event count.
+   */
+  public int size() {
+    return events.size();
+  }
+
+  /**
+   * Picks the starts that split the non-recurring events starting strictly between from and
+   * to into runs of the given length. The starts are found by their position in the interval
+   * tree, so the cost depends on the number of runs, not on the number of events.
+   * @param from the exclusive lower bound on the starts, in epoch seconds.
+   * @param to the exclusive upper bound on the starts, in epoch seconds.
+   * @param every the number of events per run.
+   * @return the distinct split starts in ascending order.
+   */
+  long[] splitStarts(long from, long to, int every) {
+    int first = index.rank(from + 1);
+    int last = index.rank(to);
+    long[] starts = new long[Math.max(0, (last - first - 1) / every)];
+    int count = 0;
+    for (int position = first + every; position < last; position += every) {
+      long start = index.startAt(position);
+      if (count == 0 || start > starts[count - 1]) {
+        starts[count++] = start;
+      }
+    }
+    return Arrays.copyOf(starts, count);
+  }
+
+  /**
+   * Returns the events that overlap the window [from, to], ordered by start: those ending
+   * after from and starting at or before to. Events span [start, end), so one ending exactly
+   * at from is not included. All-day events are treated as lasting one day from their start.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @return the overlapping events and series occurrences.
+   */
+  public List<IEvent> getEventsInRange(ZonedDateTime from, ZonedDateTime to) {
+    List<IEvent> result = new ArrayList<>();
+    index.query(from.toEpochSecond(), to.toEpochSecond() + 1,
+        id -> result.add(events.get(id)));
+    int stored = result.size();
+    seriesIndex.query(from.toEpochSecond(), to.toEpochSecond() + 1,
+        id -> result.addAll(series.get(id).getInstances(from, to)));
+    if (result.size() > stored) {
+      result.sort(Calendar.BY_START);
+    }
+    return result;
+  }
+
+  /**
+   * Lazily streams the events that overlap the window [from, to], in the same
+   * order as {@link #getEventsInRange}. Stored events are read from the interval tree and
+   * merged with the occurrence streams of the overlapping series through a small heap,
+   * so memory stays bounded by the tree height and the number of series however large
+   * the window is.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @return an ordered stream of the overlapping events and series occurrences.
+   */
+  public Stream<IEvent> streamEventsInRange(ZonedDateTime from, ZonedDateTime to) {
+    PrimitiveIterator.OfInt ids =
+        index.iterator(from.toEpochSecond(), to.toEpochSecond() + 1);
+    List<Iterator<? extends IEvent>> sources = new ArrayList<>();
+    sources.add(new Iterator<IEvent>() {
+      @Override
+      public boolean hasNext() {
+        return ids.hasNext();
+      }
+
+      @Override
+      public IEvent next() {
+        return events.get(ids.nextInt());
+      }
+    });
+    seriesIndex.query(from.toEpochSecond(), to.toEpochSecond() + 1,
+        id -> sources.add(series.get(id).stream(from, to).iterator()));
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator(sources),
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * Receives the events of a window in start order: stored events by their id in the store,
+   * so their fields can be read without building an event, and series occurrences as events.
+   */
+  interface EventVisitor {
+
+    /**
+     * Receives a stored event.
+     * @param events the store holding the event.
+     * @param id the id of the event in the store.
+     */
+    void visitStored(EventStore events, int id);
+
+    /**
+     * Receives a series occurrence.
+     * @param occurrence the occurrence.
+     */
+    void visitOccurrence(IEvent occurrence);
+  }
+
+  /**
+   * Walks the events that overlap the window [from, to] and start in [lo, hi), in the order
+   * of {@link #streamEventsInRange}, with stored events first among starts in the same
+   * second. A run that
+   * starts inside the window is read by start rather than as a window of its own, so an
+   * event of zero length starting exactly at lo is kept, and consecutive runs together hold
+   * exactly the events of the window.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @param lo the inclusive lower bound on the starts, in epoch seconds.
+   * @param hi the exclusive upper bound on the starts, in epoch seconds.
+   * @param visitor receives the stored events and series occurrences starting in the run.
+   */
+  void forEachStartingIn(ZonedDateTime from, ZonedDateTime to, long lo, long hi,
+      EventVisitor visitor) {
+    long fromSecond = from.toEpochSecond();
+    long end = Math.min(hi, to.toEpochSecond() + 1);
+    // Anything starting after from overlaps the window, whatever its length
+    boolean inside = lo > fromSecond;
+    PrimitiveIterator.OfInt ids = inside ? index.startingFrom(lo) : index.iterator(fromSecond, end);
+    List<Iterator<? extends IEvent>> sources = new ArrayList<>();
+    long reach = inside ? lo - 1 : fromSecond;
+    ZonedDateTime reachTime = inside ? Instant.ofEpochSecond(reach).atZone(timezone) : from;
+    seriesIndex.query(reach, end, id -> sources.add(series.get(id).stream(reachTime, to)
+        .takeWhile(e -> Calendar.startSecond(e) < end)
+        .filter(e -> Calendar.startSecond(e) >= lo)
+        .iterator()));
+    Iterator<IEvent> occurrences = new MergingIterator(sources);
+    IEvent occurrence = occurrences.hasNext() ? occurrences.next() : null;
+    int id = ids.hasNext() ? ids.nextInt() : -1;
+    long start = id >= 0 ? events.startSecond(id) : Long.MAX_VALUE;
+    while (start < end || occurrence != null) {
+      if (start < end && (occurrence == null || start <= Calendar.startSecond(occurrence))) {
+        visitor.visitStored(events, id);
+        id = ids.hasNext() ? ids.nextInt() : -1;
+        start = id >= 0 ? events.startSecond(id) : Long.MAX_VALUE;
+      } else {
+        visitor.visitOccurrence(occurrence);
+        occurrence = occurrences.hasNext() ? occurrences.next() : null;
+      }
+    }
+  }
+
+  /**
+   * Counts the events and occurrences that overlap the window [from, to], like
+   * {@link #getEventsInRange}, optionally only those with a given subject. Stored events
+   * are counted straight from the interval tree without building any event.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @param subject the subject to match, or null to count every event.
+   * @return the number of matching events.
+   */
+  public long countEvents(ZonedDateTime from, ZonedDateTime to, String subject) {
+    long count = 0;
+    PrimitiveIterator.OfInt ids =
+        index.iterator(from.toEpochSecond(), to.toEpochSecond() + 1);
+    while (ids.hasNext()) {
+      int id = ids.nextInt();
+      if (subject == null || subject.equals(events.subject(id))) {
+        count++;
+      }
+    }
+    for (RecurringEvent recurring : seriesOverlapping(from, to)) {
+      count += recurring.stream(from, to)
+          .filter(e -> subject == null || subject.equals(e.getSubject()))
+          .count();
+    }
+    return count;
+  }
+
+  /**
+   * Sums the time within [from, to) that events and occurrences cover. Events and series
+   * are never added over one another, and a series' occurrences are no longer than the gap
+   * between them, so each share of the window is simply added up. Only across a daylight
+   * saving change can one occurrence run into the next, so every occurrence is counted from
+   * where the previous one of its series ended.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @return the total busy time inside the window.
+   * @throws IllegalArgumentException if the window ends before it starts.
+   */
+  public Duration getBusyDuration(ZonedDateTime from, ZonedDateTime to) {
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("Window end cannot be before start");
+    }
+    long lo = from.toEpochSecond();
+    long hi = to.toEpochSecond();
+    long seconds = 0;
+    PrimitiveIterator.OfInt ids = index.iterator(lo, hi);
+    while (ids.hasNext()) {
+      int id = ids.nextInt();
+      long start = Math.max(events.startSecond(id), lo);
+      long end = Math.min(events.endSecond(id), hi);
+      seconds += Math.max(0, end - start);
+    }
+    for (RecurringEvent recurring : seriesOverlapping(from, to)) {
+      Iterator<Event> occurrences = recurring.stream(from, to).iterator();
+      long covered = lo;
+      while (occurrences.hasNext()) {
+        Event occurrence = occurrences.next();
+        long start = Math.max(Calendar.startSecond(occurrence), covered);
+        long end = Math.min(Calendar.endSecond(occurrence), hi);
+        if (end > start) {
+          seconds += end - start;
+          covered = end;
+        }
+      }
+    }
+    return Duration.ofSeconds(seconds);
+  }
+
+  /**
+   * Checks whether any event covers the given time, counting an event as busy from its
+   * start up to but not including its end. Answered by one stabbing search of the interval
+   * tree plus the occurrences of any series whose span covers the time.
+   * @param time the time to check.
+   * @return true if some event or occurrence covers the time.
+   */
+  public boolean isBusy(ZonedDateTime time) {
+    long second = time.toEpochSecond();
+    if (index.overlaps(second, second + 1)) {
+      return true;
+    }
+    for (RecurringEvent recurring : seriesOverlapping(time, time)) {
+      for (Event occurrence : recurring.getInstances(time, time)) {
+        if (Calendar.startSecond(occurrence) <= second && second < Calendar.endSecond(occurrence)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private List<RecurringEvent> seriesOverlapping(ZonedDateTime from, ZonedDateTime to) {
+    List<RecurringEvent> found = new ArrayList<>();
+    seriesIndex.query(from.toEpochSecond(), to.toEpochSecond() + 1,
+        id -> found.add(series.get(id)));
+    return found;
+  }
+
+  /**
+   * Merges several iterators that are each in start order into one, in start order.
+   * On equal starts the earlier source comes first, matching a stable sort of the sources
+   * concatenated in order.
+   */
+  private static class MergingIterator implements Iterator<IEvent> {
+    private final List<Iterator<? extends IEvent>> sources;
+    private final IEvent[] heads;
+    private final PriorityQueue<Integer> heap;
+
+    MergingIterator(List<Iterator<? extends IEvent>> sources) {
+      this.sources = sources;
+      this.heads = new IEvent[sources.size()];
+      this.heap = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+        int byStart = Calendar.BY_START.compare(heads[a], heads[b]);
+        return byStart != 0 ? byStart : Integer.compare(a, b);
+      });
+      for (int i = 0; i < sources.size(); i++) {
+        refill(i);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heap.isEmpty();
+    }
+
+    @Override
+    public IEvent next() {
+      if (heap.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      int source = heap.poll();
+      IEvent event = heads[source];
+      refill(source);
+      return event;
+    }
+
+    private void refill(int source) {
+      if (sources.get(source).hasNext()) {
+        heads[source] = sources.get(source).next();
+        heap.add(source);
+      }
+    }
+  }
+}
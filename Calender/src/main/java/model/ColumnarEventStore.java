@@ -0,0 +1,201 @@
+package model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs events into parallel primitive arrays: start and end epoch seconds, an index into
+ * a table of zones, and the canonical strings from the calendar's dictionary for subject,
+ * location and description. An event costs a few dozen bytes instead of several object
+ * graphs, range scans read contiguous longs, and event objects are only built for the results
+ * handed out.
+ * Times are kept to the second. Subjects, the one column edited in place, are held in
+ * fixed-size chunks, so an edit after a snapshot copies only the chunk it touches.
+ */
+class ColumnarEventStore implements EventStore {
+  private static final byte PUBLIC = 1;
+  private static final byte ALL_DAY = 2;
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private long[] starts = new long[16];
+  private long[] ends = new long[16];
+  private int[] zones = new int[16];
+  private String[][] subjects = new String[1][];
+  private String[] locations = new String[16];
+  private String[] descriptions = new String[16];
+  private byte[] flags = new byte[16];
+  private int size;
+
+  private final List<ZoneId> zoneTable = new ArrayList<>();
+  private final Map<ZoneId, Integer> zoneIds = new HashMap<>();
+  private final StringDictionary strings;
+  // Set once a snapshot shares the subject chunk table; the next edit copies it first
+  private boolean shared;
+  // Bumped by every snapshot; a subject chunk may be changed in place only if created or
+  // copied since
+  private int generation;
+  private int[] ownedIn = new int[1];
+
+  ColumnarEventStore(StringDictionary strings) {
+    this.strings = strings;
+  }
+
+  @Override
+  public int add(IEvent event) {
+    if (size == starts.length) {
+      grow();
+    }
+    int id = size++;
+    starts[id] = Calendar.startSecond(event);
+    ends[id] = Calendar.endSecond(event);
+    zones[id] = zoneId(event.getZoneId());
+    int chunk = id >>> CHUNK_BITS;
+    if (subjects[chunk] == null) {
+      // Snapshots never read past their own size, so a slot beyond it may be filled in
+      subjects[chunk] = new String[CHUNK_SIZE];
+      ownedIn[chunk] = generation;
+    }
+    subjects[chunk][id & CHUNK_MASK] = strings.intern(event.getSubject());
+    locations[id] = strings.intern(event.getLocation());
+    descriptions[id] = strings.intern(event.getDescription());
+    flags[id] = (byte) ((event.isPublic() ? PUBLIC : 0) | (event.getEnd() == null ? ALL_DAY : 0));
+    return id;
+  }
+
+  @Override
+  public IEvent get(int id) {
+    ZoneId zone = zoneTable.get(zones[id]);
+    ZonedDateTime start = Instant.ofEpochSecond(starts[id]).atZone(zone);
+    ZonedDateTime end = (flags[id] & ALL_DAY) != 0 ? null
+        : Instant.ofEpochSecond(ends[id]).atZone(zone);
+    return new Event(subject(id), start, end, locations[id], descriptions[id],
+        (flags[id] & PUBLIC) != 0);
+  }
+
+  @Override
+  public String subject(int id) {
+    return subjects[id >>> CHUNK_BITS][id & CHUNK_MASK];
+  }
+
+  @Override
+  public String location(int id) {
+    return locations[id];
+  }
+
+  @Override
+  public String description(int id) {
+    return descriptions[id];
+  }
+
+  @Override
+  public boolean isPublic(int id) {
+    return (flags[id] & PUBLIC) != 0;
+  }
+
+  @Override
+  public boolean isAllDay(int id) {
+    return (flags[id] & ALL_DAY) != 0;
+  }
+
+  @Override
+  public long startSecond(int id) {
+    return starts[id];
+  }
+
+  @Override
+  public long endSecond(int id) {
+    return ends[id];
+  }
+
+  @Override
+  public boolean startsAt(int id, ZonedDateTime time) {
+    return starts[id] == time.toEpochSecond() && time.getNano() == 0;
+  }
+
+  /**
+   * Changes one subject, copying the subject chunk and the chunk table first when a
+   * snapshot may read them, the same way {@link ObjectEventStore#setSubject} does. The old
+   * subject is released from the dictionary.
+   */
+  @Override
+  public void setSubject(int id, String subject) {
+    String interned = strings.intern(subject != null ? subject : "");
+    if (shared) {
+      subjects = subjects.clone();
+      shared = false;
+    }
+    int chunk = id >>> CHUNK_BITS;
+    if (ownedIn[chunk] != generation) {
+      subjects[chunk] = subjects[chunk].clone();
+      ownedIn[chunk] = generation;
+    }
+    strings.release(subjects[chunk][id & CHUNK_MASK]);
+    subjects[chunk][id & CHUNK_MASK] = interned;
+  }
+
+  /**
+   * Points every event at the new zone's table entry. Only the zone column is replaced,
+   * with a fresh array so any snapshot sharing the old one is untouched.
+   */
+  @Override
+  public void rezone(ZoneId zone) {
+    int[] rezoned = new int[zones.length];
+    Arrays.fill(rezoned, 0, size, zoneId(zone));
+    zones = rezoned;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public EventStore snapshot() {
+    shared = true;
+    generation++;
+    ColumnarEventStore view = new ColumnarEventStore(strings);
+    view.starts = starts;
+    view.ends = ends;
+    view.zones = zones;
+    view.subjects = subjects;
+    view.locations = locations;
+    view.descriptions = descriptions;
+    view.flags = flags;
+    view.size = size;
+    view.shared = true;
+    view.generation = 1;
+    view.ownedIn = new int[subjects.length];
+    view.zoneTable.addAll(zoneTable);
+    return view;
+  }
+
+  private int zoneId(ZoneId zone) {
+    return zoneIds.computeIfAbsent(zone, z -> {
+      zoneTable.add(z);
+      return zoneTable.size() - 1;
+    });
+  }
+
+  private void grow() {
+    int capacity = starts.length * 2;
+    starts = Arrays.copyOf(starts, capacity);
+    ends = Arrays.copyOf(ends, capacity);
+    zones = Arrays.copyOf(zones, capacity);
+    if (capacity > subjects.length << CHUNK_BITS) {
+      subjects = Arrays.copyOf(subjects, Math.max(1, capacity >>> CHUNK_BITS));
+      ownedIn = Arrays.copyOf(ownedIn, subjects.length);
+      shared = false;
+    }
+    locations = Arrays.copyOf(locations, capacity);
+    descriptions = Arrays.copyOf(descriptions, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+  }
+}
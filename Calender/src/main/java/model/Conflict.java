@@ -0,0 +1,36 @@
+package model;
+
+/**
+ * A pair of events that overlap in time: an occurrence of a series being checked
+ * and an event (or occurrence) already in the calendar.
+ */
+public class Conflict {
+  private final Event occurrence;
+  private final IEvent existing;
+
+  public Conflict(Event occurrence, IEvent existing) {
+    this.occurrence = occurrence;
+    this.existing = existing;
+  }
+
+  /**
+   * Gets the occurrence of the series that was checked.
+   * @return the conflicting occurrence.
+   */
+  public Event getOccurrence() {
+    return occurrence;
+  }
+
+  /**
+   * Gets the event it overlaps.
+   * @return the existing event.
+   */
+  public IEvent getExisting() {
+    return existing;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Conflict[%s with %s]", occurrence, existing);
+  }
+}
@@ -91,7 +91,7 @@ public class Event implements IEvent {
 
   @Override
   public boolean conflictsWith(Event other) {
-    return false;
+    return conflictsWith((IEvent) other);
   }
 
   private void maintainTimeZoneConsistency() {
@@ -104,6 +104,7 @@ public class Event implements IEvent {
   @Override
   public boolean conflictsWith(IEvent other) {
     if (other == null) return false;
+    if (other instanceof RecurringEvent) return other.conflictsWith((IEvent) this);
 
     ZonedDateTime thisStart = this.start;
     ZonedDateTime thisEnd = this.end != null ? this.end : thisStart.plusDays(1);
@@ -0,0 +1,158 @@
+package model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, compact form of an event: start and end as epoch seconds, a shared zone
+ * instance and the event's text fields. The hash is computed once on creation, so records
+ * are cheap to compare and to keep in hash-based collections.
+ * Calendars store events in this form and hand out {@link Event} objects built from it.
+ * Times are kept to the second.
+ */
+public final class EventRecord {
+  private static final Map<String, ZoneId> ZONES = new ConcurrentHashMap<>();
+
+  private final String subject;
+  private final long start;
+  private final long end;
+  private final ZoneId zone;
+  private final String location;
+  private final String description;
+  private final boolean isPublic;
+  private final boolean allDay;
+  private final int hash;
+
+  private EventRecord(String subject, long start, long end, ZoneId zone, String location,
+      String description, boolean isPublic, boolean allDay) {
+    this.subject = subject != null ? subject : "";
+    this.start = start;
+    this.end = end;
+    this.zone = zone;
+    this.location = location;
+    this.description = description;
+    this.isPublic = isPublic;
+    this.allDay = allDay;
+    int h = Long.hashCode(start);
+    h = 31 * h + Long.hashCode(end);
+    h = 31 * h + zone.hashCode();
+    h = 31 * h + this.subject.hashCode();
+    h = 31 * h + Objects.hashCode(location);
+    h = 31 * h + Objects.hashCode(description);
+    h = 31 * h + (isPublic ? 1 : 0);
+    this.hash = 31 * h + (allDay ? 1 : 0);
+  }
+
+  /**
+   * Creates the record of an event. Text fields are deduplicated through the given dictionary.
+   * @param event the event to copy.
+   * @param strings the dictionary that supplies canonical strings.
+   * @return the record.
+   */
+  public static EventRecord of(IEvent event, StringDictionary strings) {
+    return new EventRecord(strings.intern(event.getSubject()), Calendar.startSecond(event),
+        Calendar.endSecond(event), intern(event.getZoneId()), strings.intern(event.getLocation()),
+        strings.intern(event.getDescription()), event.isPublic(), event.getEnd() == null);
+  }
+
+  /**
+   * Returns a copy of this record with a different subject.
+   * @param subject the new subject; null becomes an empty subject.
+   * @return the renamed record.
+   */
+  public EventRecord withSubject(String subject) {
+    return new EventRecord(subject, start, end, zone, location,
+        description, isPublic, allDay);
+  }
+
+  /**
+   * Returns a copy of this record shown in a different zone. The instants do not change.
+   * @param zone the new zone.
+   * @return the rezoned record.
+   */
+  public EventRecord withZone(ZoneId zone) {
+    return new EventRecord(subject, start, end, intern(zone), location, description, isPublic,
+        allDay);
+  }
+
+  /**
+   * Builds a mutable event with the fields of this record. Changes to the event are not
+   * written back to the record.
+   * @return a new event.
+   */
+  public Event toEvent() {
+    ZonedDateTime startTime = Instant.ofEpochSecond(start).atZone(zone);
+    ZonedDateTime endTime = allDay ? null : Instant.ofEpochSecond(end).atZone(zone);
+    return new Event(subject, startTime, endTime, location, description, isPublic);
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  /**
+   * Gets the start of the event in epoch seconds.
+   * @return the start second.
+   */
+  public long getStartSecond() {
+    return start;
+  }
+
+  /**
+   * Gets the exclusive end of the event in epoch seconds; all-day events last one day.
+   * @return the end second.
+   */
+  public long getEndSecond() {
+    return end;
+  }
+
+  public ZoneId getZoneId() {
+    return zone;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public boolean isPublic() {
+    return isPublic;
+  }
+
+  public boolean isAllDay() {
+    return allDay;
+  }
+
+  private static ZoneId intern(ZoneId zone) {
+    return ZONES.computeIfAbsent(zone.getId(), id -> zone);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof EventRecord)) return false;
+    EventRecord other = (EventRecord) o;
+    return hash == other.hash && start == other.start && end == other.end
+        && isPublic == other.isPublic && allDay == other.allDay
+        && zone.equals(other.zone) && subject.equals(other.subject)
+        && Objects.equals(location, other.location)
+        && Objects.equals(description, other.description);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("EventRecord[%s, %d to %d, %s]", subject, start, end, zone);
+  }
+}
@@ -0,0 +1,113 @@
+package model;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Storage for the non-recurring events of a calendar.
+ * Events are addressed by dense integer ids assigned in insertion order, which is what the
+ * calendar's indexes hold, and their spans can be read as epoch seconds without building
+ * any event object.
+ * A store can hand out snapshots of itself, which later changes to the store never affect.
+ */
+interface EventStore {
+
+  /**
+   * Stores an event.
+   * @param event the event to store.
+   * @return the id of the stored event.
+   */
+  int add(IEvent event);
+
+  /**
+   * Returns the event with the given id.
+   * @param id the event id.
+   * @return the event, or a view of it.
+   */
+  IEvent get(int id);
+
+  /**
+   * Returns the subject of an event without building the event.
+   * @param id the event id.
+   * @return the subject.
+   */
+  String subject(int id);
+
+  /**
+   * Returns the location of an event without building the event.
+   * @param id the event id.
+   * @return the location, or null if it has none.
+   */
+  String location(int id);
+
+  /**
+   * Returns the description of an event without building the event.
+   * @param id the event id.
+   * @return the description, or null if it has none.
+   */
+  String description(int id);
+
+  /**
+   * Checks whether an event is public without building the event.
+   * @param id the event id.
+   * @return true if the event is public.
+   */
+  boolean isPublic(int id);
+
+  /**
+   * Checks whether an event is an all-day event, one without an end time.
+   * @param id the event id.
+   * @return true if the event has no end time.
+   */
+  boolean isAllDay(int id);
+
+  /**
+   * Returns the start of an event in epoch seconds.
+   * @param id the event id.
+   * @return the start second.
+   */
+  long startSecond(int id);
+
+  /**
+   * Returns the exclusive end of an event in epoch seconds; all-day events last one day.
+   * @param id the event id.
+   * @return the end second.
+   */
+  long endSecond(int id);
+
+  /**
+   * Checks whether an event starts exactly at the given instant.
+   * @param id the event id.
+   * @param time the instant, in any zone.
+   * @return true if the event starts at that instant.
+   */
+  boolean startsAt(int id, ZonedDateTime time);
+
+  /**
+   * Changes the subject of a stored event.
+   * @param id the event id.
+   * @param subject the new subject.
+   */
+  void setSubject(int id, String subject);
+
+  /**
+   * Moves every stored event to the given zone, keeping its instants. Events handed out
+   * afterwards are expressed in that zone.
+   * @param zone the new zone of the events.
+   */
+  void rezone(ZoneId zone);
+
+  /**
+   * Returns the number of stored events.
+   * @return the event count.
+   */
+  int size();
+
+  /**
+   * Returns a read-only view of the events stored so far. Events added later are not
+   * visible in the view and later edits do not change it, so the view can be read from
+   * other threads without locking once it has been safely published.
+   * @return a snapshot of the store.
+   */
+  EventStore snapshot();
+}
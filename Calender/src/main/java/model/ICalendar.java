@@ -1,8 +1,13 @@
 package model;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.stream.Stream;
 
 /**
  * Interface for calendar operations.
@@ -13,9 +18,19 @@ public interface ICalendar {
   ZoneId getTimezone();
   void setTimezone(ZoneId timezone);
   boolean addEvent(IEvent event);
+  List<IEvent> addEvents(Collection<? extends IEvent> events);
   boolean addRecurringEvent(RecurringEvent recurringEvent);
+  List<Conflict> findConflicts(RecurringEvent recurringEvent);
   List<IEvent> getEventsInRange(ZonedDateTime from, ZonedDateTime to);
+  Stream<IEvent> streamEventsInRange(ZonedDateTime from, ZonedDateTime to);
+  List<IEvent> getEventsOnDays(LocalDate from, LocalDate to);
+  long countEvents(ZonedDateTime from, ZonedDateTime to, String subject);
+  Duration getBusyDuration(ZonedDateTime from, ZonedDateTime to);
+  SortedMap<LocalDate, Integer> countEventsPerDay(LocalDate from, LocalDate to);
+  void setRangeCache(RangeQueryCache cache);
   boolean isBusy(ZonedDateTime time);
   void editEventInstance(ZonedDateTime start, String property, String value);
+  int editEvents(String subject, ZonedDateTime from, String property, String value);
   Event getEventAt(ZonedDateTime start);
+  Event getNextEvent(ZonedDateTime time);
 }
\ No newline at end of file
@@ -0,0 +1,381 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * An augmented AVL tree of [start, end) intervals over epoch seconds.
+ * Each interval carries an integer id (the position of the event in its calendar) and every
+ * node caches the largest end in its subtree, so overlap queries can skip whole subtrees,
+ * and the size of its subtree, so intervals can be found by their position in start order.
+ * Nodes are never modified after creation; inserts copy the path from the root.
+ */
+class IntervalTree {
+
+  /**
+   * A single tree node. Ordered by start, then by id.
+   */
+  static final class Node {
+    final long start;
+    final long end;
+    final int id;
+    final long maxEnd;
+    final int height;
+    final int count;
+    final Node left;
+    final Node right;
+
+    Node(long start, long end, int id, Node left, Node right) {
+      this.start = start;
+      this.end = end;
+      this.id = id;
+      this.left = left;
+      this.right = right;
+      this.height = 1 + Math.max(height(left), height(right));
+      this.count = 1 + count(left) + count(right);
+      this.maxEnd = Math.max(end, Math.max(maxEnd(left), maxEnd(right)));
+    }
+  }
+
+  private Node root;
+  private int size;
+
+  /**
+   * Returns the number of intervals in the tree.
+   * @return the interval count.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the largest end of any interval, or Long.MIN_VALUE if the tree is empty.
+   * @return the latest end in the tree.
+   */
+  long maxEnd() {
+    return maxEnd(root);
+  }
+
+  /**
+   * Returns a tree holding the intervals in this tree now. Nodes are immutable, so the copy
+   * shares them all and is unaffected by later inserts into this tree.
+   * @return the copy.
+   */
+  IntervalTree copy() {
+    IntervalTree copy = new IntervalTree();
+    copy.root = root;
+    copy.size = size;
+    return copy;
+  }
+
+  /**
+   * Adds an interval to the tree.
+   * @param start the start of the interval in epoch seconds (inclusive).
+   * @param end the end of the interval in epoch seconds (exclusive).
+   * @param id the id reported back by queries.
+   */
+  void insert(long start, long end, int id) {
+    root = insert(root, start, end, id);
+    size++;
+  }
+
+  /**
+   * Adds a batch of intervals sorted by start, whose ids are all larger than any id already
+   * in the tree. A batch that is large relative to the tree is merged with the existing
+   * intervals in one linear pass and the tree is rebuilt perfectly balanced; a small batch
+   * is inserted one interval at a time.
+   * @param starts the interval starts, in ascending order.
+   * @param ends the interval ends.
+   * @param ids the interval ids, in ascending order.
+   * @param count the number of intervals to take from the arrays.
+   */
+  void insertSorted(long[] starts, long[] ends, int[] ids, int count) {
+    int total = size + count;
+    if ((long) count * (32 - Integer.numberOfLeadingZeros(total)) < total) {
+      for (int i = 0; i < count; i++) {
+        insert(starts[i], ends[i], ids[i]);
+      }
+      return;
+    }
+    Node[] existing = new Node[size];
+    flatten(root, existing, 0);
+    long[] mergedStarts = new long[total];
+    long[] mergedEnds = new long[total];
+    int[] mergedIds = new int[total];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < total; k++) {
+      // Existing ids are smaller, so on equal starts the existing interval comes first
+      if (j >= count || (i < existing.length && existing[i].start <= starts[j])) {
+        mergedStarts[k] = existing[i].start;
+        mergedEnds[k] = existing[i].end;
+        mergedIds[k] = existing[i].id;
+        i++;
+      } else {
+        mergedStarts[k] = starts[j];
+        mergedEnds[k] = ends[j];
+        mergedIds[k] = ids[j];
+        j++;
+      }
+    }
+    root = build(mergedStarts, mergedEnds, mergedIds, 0, total);
+    size = total;
+  }
+
+  /**
+   * Reports, in start order, the id of every interval with start &lt; hi and end &gt; lo.
+   * @param lo the exclusive lower bound on interval ends.
+   * @param hi the exclusive upper bound on interval starts.
+   * @param action receives the ids of the matching intervals.
+   */
+  void query(long lo, long hi, IntConsumer action) {
+    query(root, lo, hi, action);
+  }
+
+  /**
+   * Lazily walks, in start order, the ids of the intervals with start &lt; hi and end &gt; lo.
+   * The walk prunes subtrees like {@link #query}, keeps only a stack of at most the tree
+   * height, and sees the tree as it was when the iterator was created.
+   * @param lo the exclusive lower bound on interval ends.
+   * @param hi the exclusive upper bound on interval starts.
+   * @return an iterator over the ids of the matching intervals.
+   */
+  PrimitiveIterator.OfInt iterator(long lo, long hi) {
+    Deque<Node> stack = new ArrayDeque<>();
+    pushLeft(stack, root, lo);
+    return new PrimitiveIterator.OfInt() {
+      private Node next = advance();
+
+      private Node advance() {
+        while (!stack.isEmpty()) {
+          Node node = stack.pop();
+          if (node.start >= hi) {
+            // Every later interval starts at or after this one
+            stack.clear();
+            return null;
+          }
+          pushLeft(stack, node.right, lo);
+          if (node.end > lo) {
+            return node;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        int id = next.id;
+        next = advance();
+        return id;
+      }
+    };
+  }
+
+  /**
+   * Lazily walks, in start order, the ids of the intervals starting at or after the given
+   * second, however far they reach. The walk keeps only a stack of at most the tree height
+   * and sees the tree as it was when the iterator was created.
+   * @param start the inclusive lower bound on interval starts.
+   * @return an iterator over the ids of the intervals from that start on.
+   */
+  PrimitiveIterator.OfInt startingFrom(long start) {
+    Deque<Node> stack = new ArrayDeque<>();
+    Node node = root;
+    while (node != null) {
+      if (node.start >= start) {
+        stack.push(node);
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    return new PrimitiveIterator.OfInt() {
+      @Override
+      public boolean hasNext() {
+        return !stack.isEmpty();
+      }
+
+      @Override
+      public int nextInt() {
+        if (stack.isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        Node next = stack.pop();
+        for (Node child = next.right; child != null; child = child.left) {
+          stack.push(child);
+        }
+        return next.id;
+      }
+    };
+  }
+
+  /**
+   * Counts the intervals starting before the given second, in time logarithmic in the size
+   * of the tree.
+   * @param start the exclusive upper bound on interval starts.
+   * @return the number of intervals with a smaller start.
+   */
+  int rank(long start) {
+    int rank = 0;
+    Node node = root;
+    while (node != null) {
+      if (node.start < start) {
+        rank += count(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Returns the start of the interval at the given position in start order, in time
+   * logarithmic in the size of the tree.
+   * @param position the position, from 0 to {@link #size()} - 1.
+   * @return the start of the interval at that position.
+   */
+  long startAt(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+    }
+    Node node = root;
+    while (true) {
+      int left = count(node.left);
+      if (position < left) {
+        node = node.left;
+      } else if (position > left) {
+        position -= left + 1;
+        node = node.right;
+      } else {
+        return node.start;
+      }
+    }
+  }
+
+  /**
+   * Checks whether any interval has start &lt; hi and end &gt; lo.
+   * @param lo the exclusive lower bound on interval ends.
+   * @param hi the exclusive upper bound on interval starts.
+   * @return true if at least one interval overlaps the bounds.
+   */
+  boolean overlaps(long lo, long hi) {
+    Node node = root;
+    while (node != null) {
+      if (node.start < hi && node.end > lo) {
+        return true;
+      }
+      if (node.left != null && node.left.maxEnd > lo) {
+        node = node.left;
+      } else if (node.start < hi) {
+        node = node.right;
+      } else {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static void query(Node node, long lo, long hi, IntConsumer action) {
+    if (node == null || node.maxEnd <= lo) {
+      return;
+    }
+    query(node.left, lo, hi, action);
+    if (node.start >= hi) {
+      return;
+    }
+    if (node.end > lo) {
+      action.accept(node.id);
+    }
+    query(node.right, lo, hi, action);
+  }
+
+  private static void pushLeft(Deque<Node> stack, Node node, long lo) {
+    while (node != null && node.maxEnd > lo) {
+      stack.push(node);
+      node = node.left;
+    }
+  }
+
+  private static int flatten(Node node, Node[] out, int next) {
+    if (node == null) {
+      return next;
+    }
+    next = flatten(node.left, out, next);
+    out[next++] = node;
+    return flatten(node.right, out, next);
+  }
+
+  private static Node build(long[] starts, long[] ends, int[] ids, int from, int to) {
+    if (from >= to) {
+      return null;
+    }
+    int mid = (from + to) >>> 1;
+    return new Node(starts[mid], ends[mid], ids[mid],
+        build(starts, ends, ids, from, mid), build(starts, ends, ids, mid + 1, to));
+  }
+
+  private static Node insert(Node node, long start, long end, int id) {
+    if (node == null) {
+      return new Node(start, end, id, null, null);
+    }
+    if (start < node.start || (start == node.start && id < node.id)) {
+      return balance(node.start, node.end, node.id, insert(node.left, start, end, id), node.right);
+    }
+    return balance(node.start, node.end, node.id, node.left, insert(node.right, start, end, id));
+  }
+
+  private static Node balance(long start, long end, int id, Node left, Node right) {
+    int diff = height(left) - height(right);
+    if (diff > 1) {
+      if (height(left.left) < height(left.right)) {
+        left = rotateLeft(left);
+      }
+      return new Node(left.start, left.end, left.id, left.left,
+          new Node(start, end, id, left.right, right));
+    }
+    if (diff < -1) {
+      if (height(right.right) < height(right.left)) {
+        right = rotateRight(right);
+      }
+      return new Node(right.start, right.end, right.id,
+          new Node(start, end, id, left, right.left), right.right);
+    }
+    return new Node(start, end, id, left, right);
+  }
+
+  private static Node rotateLeft(Node node) {
+    Node r = node.right;
+    return new Node(r.start, r.end, r.id,
+        new Node(node.start, node.end, node.id, node.left, r.left), r.right);
+  }
+
+  private static Node rotateRight(Node node) {
+    Node l = node.left;
+    return new Node(l.start, l.end, l.id, l.left,
+        new Node(node.start, node.end, node.id, l.right, node.right));
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int count(Node node) {
+    return node == null ? 0 : node.count;
+  }
+
+  private static long maxEnd(Node node) {
+    return node == null ? Long.MIN_VALUE : node.maxEnd;
+  }
+}
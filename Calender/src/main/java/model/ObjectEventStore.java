@@ -0,0 +1,168 @@
+package model;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/**
+ * Keeps each event as an immutable {@link EventRecord} whose text fields come from the
+ * calendar's string dictionary. Events handed out are fresh objects built from the records.
+ * Records are held in fixed-size chunks, so a snapshot shares them all and an edit made
+ * after it copies only the chunk it touches.
+ */
+class ObjectEventStore implements EventStore {
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private EventRecord[][] chunks;
+  private int size;
+  private final StringDictionary strings;
+  // Set once a snapshot shares the chunk table; the next in-place change copies it first
+  private boolean shared;
+  // Bumped by every snapshot; a chunk may be changed in place only if created or copied since
+  private int generation;
+  private int[] ownedIn;
+
+  ObjectEventStore(StringDictionary strings) {
+    this.strings = strings;
+    this.chunks = new EventRecord[4][];
+    this.ownedIn = new int[chunks.length];
+  }
+
+  /**
+   * Creates a view of another store's chunks that owns none of them.
+   */
+  private ObjectEventStore(StringDictionary strings, EventRecord[][] chunks, int size) {
+    this.strings = strings;
+    this.chunks = chunks;
+    this.size = size;
+    this.shared = true;
+    this.generation = 1;
+    this.ownedIn = new int[chunks.length];
+  }
+
+  @Override
+  public int add(IEvent event) {
+    int chunk = size >>> CHUNK_BITS;
+    if (chunk == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunk * 2);
+      ownedIn = Arrays.copyOf(ownedIn, chunk * 2);
+      shared = false;
+    }
+    if (chunks[chunk] == null) {
+      // Snapshots never read past their own size, so a slot beyond it may be filled in
+      chunks[chunk] = new EventRecord[CHUNK_SIZE];
+      ownedIn[chunk] = generation;
+    }
+    chunks[chunk][size & CHUNK_MASK] = EventRecord.of(event, strings);
+    return size++;
+  }
+
+  @Override
+  public IEvent get(int id) {
+    return record(id).toEvent();
+  }
+
+  @Override
+  public String subject(int id) {
+    return record(id).getSubject();
+  }
+
+  @Override
+  public String location(int id) {
+    return record(id).getLocation();
+  }
+
+  @Override
+  public String description(int id) {
+    return record(id).getDescription();
+  }
+
+  @Override
+  public boolean isPublic(int id) {
+    return record(id).isPublic();
+  }
+
+  @Override
+  public boolean isAllDay(int id) {
+    return record(id).isAllDay();
+  }
+
+  @Override
+  public long startSecond(int id) {
+    return record(id).getStartSecond();
+  }
+
+  @Override
+  public long endSecond(int id) {
+    return record(id).getEndSecond();
+  }
+
+  @Override
+  public boolean startsAt(int id, ZonedDateTime time) {
+    return record(id).getStartSecond() == time.toEpochSecond() && time.getNano() == 0;
+  }
+
+  /**
+   * Replaces one record. A chunk a snapshot may read is copied before it is changed. The
+   * first edit after a snapshot also copies the chunk table, one reference per 1024 events,
+   * so it costs O(n / 1024); later edits until the next snapshot copy at most one chunk.
+   * The old subject is released from the dictionary.
+   */
+  @Override
+  public void setSubject(int id, String subject) {
+    if (shared) {
+      chunks = chunks.clone();
+      shared = false;
+    }
+    int chunk = id >>> CHUNK_BITS;
+    if (ownedIn[chunk] != generation) {
+      chunks[chunk] = chunks[chunk].clone();
+      ownedIn[chunk] = generation;
+    }
+    EventRecord record = record(id);
+    chunks[chunk][id & CHUNK_MASK] = record.withSubject(strings.intern(subject));
+    strings.release(record.getSubject());
+  }
+
+  /**
+   * Rebuilds the records in the new zone in one parallel pass into fresh chunks, which
+   * leaves any snapshot sharing the old ones untouched.
+   */
+  @Override
+  public void rezone(ZoneId zone) {
+    EventRecord[][] old = chunks;
+    EventRecord[][] rezoned = new EventRecord[old.length][];
+    Arrays.parallelSetAll(rezoned, c -> {
+      if (old[c] == null) {
+        return null;
+      }
+      EventRecord[] chunk = new EventRecord[CHUNK_SIZE];
+      int count = Math.min(CHUNK_SIZE, size - (c << CHUNK_BITS));
+      for (int i = 0; i < count; i++) {
+        chunk[i] = old[c][i].withZone(zone);
+      }
+      return chunk;
+    });
+    chunks = rezoned;
+    Arrays.fill(ownedIn, generation);
+    shared = false;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public EventStore snapshot() {
+    shared = true;
+    generation++;
+    return new ObjectEventStore(strings, chunks, size);
+  }
+
+  private EventRecord record(int id) {
+    return chunks[id >>> CHUNK_BITS][id & CHUNK_MASK];
+  }
+}
@@ -0,0 +1,130 @@
+package model;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of range query results, keyed by calendar, calendar version and window.
+ * Every change to a calendar gives it a new version, so a cached result can never be stale:
+ * results for older versions are simply no longer asked for and age out of the cache.
+ * The least recently used entry is evicted once the cache is full. One cache can be shared
+ * by several calendars.
+ * Cached results are shared between callers, so they are returned unmodifiable and their
+ * events must not be changed.
+ */
+public class RangeQueryCache {
+  private final int maxEntries;
+  private final Map<Key, List<IEvent>> entries;
+  private long hits;
+  private long misses;
+
+  /**
+   * Creates an empty cache.
+   * @param maxEntries the largest number of results to keep.
+   */
+  public RangeQueryCache(int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<Key, List<IEvent>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, List<IEvent>> eldest) {
+        return size() > RangeQueryCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached result for a window of a calendar version, computing and caching it
+   * on a miss. The computation runs outside the cache lock.
+   * @param calendar the calendar queried.
+   * @param version the version of the calendar the result must reflect.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @param query computes the result on a miss.
+   * @return the unmodifiable result.
+   */
+  List<IEvent> get(ICalendar calendar, long version, ZonedDateTime from, ZonedDateTime to,
+      Supplier<List<IEvent>> query) {
+    // Windows naming the same instants in different zones share an entry
+    Key key = new Key(calendar, version, from.toInstant(), to.toInstant());
+    synchronized (this) {
+      List<IEvent> cached = entries.get(key);
+      if (cached != null) {
+        hits++;
+        return cached;
+      }
+      misses++;
+    }
+    List<IEvent> result = Collections.unmodifiableList(query.get());
+    synchronized (this) {
+      entries.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the number of queries answered from the cache.
+   * @return the hit count.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of queries that had to be computed.
+   * @return the miss count.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of results currently cached.
+   * @return the entry count.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Drops every cached result. The hit and miss counters are kept.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  private static final class Key {
+    private final ICalendar calendar;
+    private final long version;
+    private final Instant from;
+    private final Instant to;
+
+    Key(ICalendar calendar, long version, Instant from, Instant to) {
+      this.calendar = calendar;
+      this.version = version;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return calendar == other.calendar && version == other.version
+          && from.equals(other.from) && to.equals(other.to);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(calendar), version, from, to);
+    }
+  }
+}
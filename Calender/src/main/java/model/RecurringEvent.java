@@ -1,14 +1,37 @@
 package model;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RecurringEvent extends Event {
-  private String weekdays; // e.g., "MWF" for Mon, Wed, Fri
+  private String weekdays;
   private Integer occurrences;
   private ZonedDateTime recurrenceEnd;
+  private Map<Long, Event> exceptions;
+
+  // Day offsets from the start date of the occurrences in the first week, ascending
+  private int[] weekOffsets;
+  // For a day offset 0-6 within a week, the index of the first matching entry in weekOffsets
+  private int[] nextInWeek;
+  // Total number of occurrences, or Long.MAX_VALUE if the series never ends
+  private long count;
+  // The zone occurrences are handed out in, or null for the zone of the series start
+  private ZoneId zone;
 
   public RecurringEvent(String subject, ZonedDateTime start, ZonedDateTime end, String location, String description,
       boolean isPublic, String weekdays, Integer occurrences, ZonedDateTime recurrenceEnd) {
@@ -16,7 +39,11 @@ public class RecurringEvent extends Event {
     this.weekdays = weekdays != null ? weekdays.toUpperCase() : "";
     this.occurrences = occurrences;
     this.recurrenceEnd = recurrenceEnd;
+    this.exceptions = new ConcurrentHashMap<>();
     validateRecurrence();
+    buildWeekTables(weekdayMask(this.weekdays));
+    this.count = countOccurrences();
+    validateLength();
   }
 
   private void validateRecurrence() {
@@ -28,32 +55,413 @@ public class RecurringEvent extends Event {
     }
   }
 
-  public List<Event> expandInstances() {
-    List<Event> instances = new ArrayList<>();
-    ZonedDateTime currentStart = getStart();
-    ZonedDateTime currentEnd = getEnd();
+  /**
+   * Checks that an occurrence ends before the next one starts, i.e. lasts no longer than the
+   * fewest days between two consecutive weekdays of the pattern.
+   */
+  private void validateLength() {
+    if (getEnd() == null || count < 2) {
+      return;
+    }
+    int gap = 7;
+    for (int i = 0; i + 1 < weekOffsets.length; i++) {
+      gap = Math.min(gap, weekOffsets[i + 1] - weekOffsets[i]);
+    }
+    gap = Math.min(gap, weekOffsets[0] + 7 - weekOffsets[weekOffsets.length - 1]);
+    if (occurrenceLength().compareTo(Duration.ofDays(gap)) > 0) {
+      throw new IllegalArgumentException("Occurrences of a recurring event cannot overlap");
+    }
+  }
+
+  /**
+   * Parses weekday letters into a bitmask where bit 0 is Monday and bit 6 is Sunday.
+   * A letter stands for every weekday whose name starts with it, so "T" is Tuesday and
+   * Thursday, "S" is Saturday and Sunday, and "MTWTF" is Monday to Friday.
+   * No letters at all means every day.
+   */
+  private static int weekdayMask(String weekdays) {
+    if (weekdays.isEmpty()) {
+      return 0x7F;
+    }
+    int mask = 0;
+    for (char c : weekdays.toCharArray()) {
+      int days = 0;
+      for (DayOfWeek day : DayOfWeek.values()) {
+        if (day.name().charAt(0) == c) {
+          days |= 1 << day.ordinal();
+        }
+      }
+      if (days == 0) {
+        throw new IllegalArgumentException("Invalid weekday: " + c);
+      }
+      mask |= days;
+    }
+    return mask;
+  }
+
+  private void buildWeekTables(int mask) {
+    int firstDay = getStart().getDayOfWeek().getValue() - 1;
+    weekOffsets = new int[Integer.bitCount(mask)];
+    nextInWeek = new int[7];
+    int index = weekOffsets.length;
+    for (int offset = 6; offset >= 0; offset--) {
+      if ((mask & (1 << ((firstDay + offset) % 7))) != 0) {
+        weekOffsets[--index] = offset;
+      }
+      nextInWeek[offset] = index;
+    }
+  }
+
+  private long countOccurrences() {
+    long total = occurrences != null ? occurrences : Long.MAX_VALUE;
+    if (recurrenceEnd != null) {
+      total = Math.min(total, indexAtOrAfter(recurrenceEnd.plusNanos(1)));
+    }
+    return total;
+  }
+
+  public String getWeekdays() {
+    return weekdays;
+  }
+
+  public Integer getOccurrences() {
+    return occurrences;
+  }
+
+  public ZonedDateTime getRecurrenceEnd() {
+    return recurrenceEnd;
+  }
+
+  /**
+   * Replaces a single occurrence of the series with a different event.
+   * @param occurrenceStart the start of the occurrence to replace.
+   * @param replacement the event to report in its place.
+   */
+  public void addException(ZonedDateTime occurrenceStart, Event replacement) {
+    exceptions.put(occurrenceStart.toEpochSecond(), replacement);
+  }
+
+  /**
+   * Returns a copy of the series with its own table of exceptions, so the copy can be
+   * edited while snapshots keep reading this series.
+   * @return the copy.
+   */
+  RecurringEvent copy() {
+    return slice(0, count);
+  }
+
+  /**
+   * Returns a copy of the series that hands out its occurrences in the given zone. The weekly
+   * pattern stays in the zone of the series start, so every occurrence keeps its instant and
+   * only the wall-clock time it is shown at changes.
+   * @param zone the zone to show the occurrences in.
+   * @return the copy.
+   */
+  RecurringEvent inZone(ZoneId zone) {
+    RecurringEvent copy = copy();
+    copy.zone = zone;
+    return copy;
+  }
+
+  /**
+   * Splits the series at the given time without changing any occurrence: the first part
+   * holds the occurrences starting before it and the second the rest, each with the
+   * exceptions that fall within it.
+   * @param time the time to split at.
+   * @return the two parts, either of them null if it has no occurrences.
+   */
+  RecurringEvent[] splitAt(ZonedDateTime time) {
+    long n = Math.min(indexAtOrAfter(time), count);
+    return new RecurringEvent[] {n > 0 ? slice(0, n) : null, n < count ? slice(n, count) : null};
+  }
+
+  /**
+   * Renames the series along with any replaced occurrences that still carry its name.
+   * Replacements are swapped for renamed copies rather than changed in place.
+   * @param subject the new subject.
+   */
+  void rename(String subject) {
+    String old = getSubject();
+    setSubject(subject);
+    exceptions.replaceAll((start, e) -> !e.getSubject().equals(old) ? e
+        : new Event(subject, e.getStart(), e.getEnd(), e.getLocation(), e.getDescription(),
+            e.isPublic()));
+  }
+
+  /**
+   * Renames the replaced occurrences that carry the given subject and start at or after the
+   * given time, swapping them for renamed copies like {@link #rename(String)}.
+   * @param subject the subject of the replacements to rename.
+   * @param from the earliest start of a replacement to rename.
+   * @param renamed the new subject.
+   * @return the number of replacements renamed.
+   */
+  int renameExceptions(String subject, ZonedDateTime from, String renamed) {
     int count = 0;
-    int duration = (currentEnd != null) ? (int) ChronoUnit.MINUTES.between(currentStart, currentEnd) : 0;
-
-    while (true) {
-      if (recurrenceEnd != null && currentStart.isAfter(recurrenceEnd)) break;
-      if (occurrences != null && count >= occurrences) break;
-      if (matchesWeekday(currentStart)) {
-        Event instance = new Event(getSubject(), currentStart,
-            duration > 0 ? currentStart.plusMinutes(duration) : null,
-            getLocation(), getDescription(), isPublic());
-        instances.add(instance);
+    for (Map.Entry<Long, Event> entry : exceptions.entrySet()) {
+      Event e = entry.getValue();
+      if (e.getSubject().equals(subject) && !e.getStart().isBefore(from)) {
+        entry.setValue(new Event(renamed, e.getStart(), e.getEnd(), e.getLocation(),
+            e.getDescription(), e.isPublic()));
         count++;
       }
-      currentStart = currentStart.plusDays(1);
-      if (currentEnd != null) currentEnd = currentEnd.plusDays(1);
+    }
+    return count;
+  }
+
+  /**
+   * Creates a series of the occurrences from index first up to but not including last.
+   */
+  private RecurringEvent slice(long first, long last) {
+    // The first slice keeps the series start, which need not be an occurrence itself
+    ZonedDateTime start = first == 0 ? getStart() : startOf(first);
+    ZonedDateTime end = first == 0 || getEnd() == null ? getEnd() : start.plus(occurrenceLength());
+    Integer remaining = occurrences;
+    if (last < count) {
+      remaining = (int) last;
+    }
+    if (remaining != null) {
+      remaining = (int) (remaining - first);
+    }
+    RecurringEvent slice = new RecurringEvent(getSubject(), start, end, getLocation(),
+        getDescription(), isPublic(), weekdays, remaining, recurrenceEnd);
+    slice.zone = zone;
+    long from = start.toEpochSecond();
+    long to = last < count ? startOf(last).toEpochSecond() : Long.MAX_VALUE;
+    exceptions.forEach((key, e) -> {
+      if (key >= from && key < to) {
+        slice.exceptions.put(key, e);
+      }
+    });
+    return slice;
+  }
+
+  /**
+   * Returns the end of the last occurrence, or null if the series never ends.
+   * @return the time the last occurrence ends, or null for an unbounded series.
+   */
+  public ZonedDateTime getSeriesEnd() {
+    if (count == Long.MAX_VALUE) {
+      return null;
+    }
+    if (count == 0) {
+      return getStart();
+    }
+    return endOf(startOf(count - 1));
+  }
+
+  /**
+   * Returns the n-th occurrence of the series, counting from zero, in constant time.
+   * @param n the index of the occurrence.
+   * @return the occurrence, or null if the series has fewer than n + 1 occurrences.
+   */
+  public Event getOccurrence(long n) {
+    if (n < 0 || n >= count) {
+      return null;
+    }
+    return instanceAt(startOf(n));
+  }
+
+  /**
+   * Returns the first occurrence starting at or after the given time, in constant time.
+   * @param time the earliest start to accept.
+   * @return the occurrence, or null if the series has ended by then.
+   */
+  public Event getOccurrenceAtOrAfter(ZonedDateTime time) {
+    return getOccurrence(indexAtOrAfter(time));
+  }
+
+  /**
+   * Generates only the occurrences that end after from and start at or before to.
+   * The first candidate is located arithmetically, so the cost is the number of
+   * occurrences returned no matter how far into the series the window lies.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @return the occurrences touching the window, in start order.
+   */
+  public List<Event> getInstances(ZonedDateTime from, ZonedDateTime to) {
+    return stream(from, to).collect(Collectors.toList());
+  }
+
+  /**
+   * Lazily streams the occurrences that end after from and start at or before to.
+   * Occurrences are created one at a time as the stream is consumed, so even an
+   * unbounded series can be walked over any window in constant memory.
+   * @param from the start of the window.
+   * @param to the end of the window.
+   * @return an ordered stream of the occurrences touching the window.
+   */
+  public Stream<Event> stream(ZonedDateTime from, ZonedDateTime to) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(from),
+        Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .takeWhile(e -> !e.getStart().isAfter(to));
+  }
+
+  /**
+   * Returns a lazy iterator over every occurrence that ends after the given time.
+   * The iterator is infinite for a series with neither an occurrence count nor an end date,
+   * so callers bound it by time or by count.
+   * @param from the earliest time an occurrence may reach.
+   * @return an iterator over the occurrences in start order.
+   */
+  public Iterator<Event> iterator(ZonedDateTime from) {
+    // An occurrence starting up to one occurrence length before from can reach it
+    ZonedDateTime reach = getEnd() != null ? from.minus(occurrenceLength()) : from.minusDays(1);
+    long first = indexAtOrAfter(reach);
+    while (first < count && !endOf(startOf(first)).isAfter(from)) {
+      first++;
+    }
+    return new OccurrenceIterator(first);
+  }
+
+  /**
+   * Materializes every occurrence of the series.
+   * @return all occurrences in start order.
+   * @throws IllegalStateException if the series never ends; use {@link #stream} instead.
+   */
+  public List<Event> expandInstances() {
+    if (count == Long.MAX_VALUE) {
+      throw new IllegalStateException("Cannot expand a recurring event with no end");
+    }
+    List<Event> instances = new ArrayList<>();
+    for (long n = 0; n < count; n++) {
+      instances.add(instanceAt(startOf(n)));
     }
     return instances;
   }
 
-  private boolean matchesWeekday(ZonedDateTime date) {
-    if (weekdays.isEmpty()) return true; // Daily recurrence if no weekdays specified
-    String day = date.getDayOfWeek().toString().substring(0, 1);
-    return weekdays.contains(day);
+  /**
+   * Checks whether any occurrence of the series overlaps the other event.
+   * Only the occurrences that fall within the other event's span are generated.
+   * @param other the event to check against.
+   * @return true if some occurrence overlaps the other event in time.
+   */
+  @Override
+  public boolean conflictsWith(IEvent other) {
+    if (other == null) return false;
+    if (other instanceof RecurringEvent) return overlapsSeries((RecurringEvent) other);
+    ZonedDateTime otherEnd = other.getEnd() != null ? other.getEnd() : other.getStart().plusDays(1);
+    Iterator<Event> it = iterator(other.getStart());
+    while (it.hasNext()) {
+      Event occurrence = it.next();
+      if (!occurrence.getStart().isBefore(otherEnd)) break;
+      if (occurrence.conflictsWith(other)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether any occurrence of this series overlaps any occurrence of another series.
+   * @param other the other recurring series.
+   * @return true if the two series ever overlap.
+   */
+  public boolean overlapsSeries(RecurringEvent other) {
+    return !seriesConflicts(other, 1).isEmpty();
+  }
+
+  /**
+   * Finds overlapping occurrence pairs of this series and another one by walking both
+   * occurrence sequences together over the span they share, always advancing whichever
+   * current occurrence ends first. Every overlapping pair is met exactly once.
+   * When neither series ends, their weekly patterns repeat and only the first year of the
+   * shared span is walked, which also covers a full cycle of daylight saving shifts.
+   * @param other the other recurring series.
+   * @param limit the number of conflicts after which to stop.
+   * @return the conflicts found, each pairing an occurrence of this series with one of the other.
+   */
+  public List<Conflict> seriesConflicts(RecurringEvent other, int limit) {
+    List<Conflict> conflicts = new ArrayList<>();
+    ZonedDateTime from = getStart().isAfter(other.getStart()) ? getStart() : other.getStart();
+    ZonedDateTime horizon = isUnbounded() && other.isUnbounded() ? from.plusYears(1) : null;
+    Iterator<Event> mine = iterator(from);
+    Iterator<Event> theirs = other.iterator(from);
+    Event a = mine.hasNext() ? mine.next() : null;
+    Event b = theirs.hasNext() ? theirs.next() : null;
+    while (a != null && b != null && conflicts.size() < limit) {
+      if (horizon != null && a.getStart().isAfter(horizon) && b.getStart().isAfter(horizon)) break;
+      if (a.conflictsWith(b)) conflicts.add(new Conflict(a, b));
+      if (endOf(a.getStart()).isAfter(other.endOf(b.getStart()))) {
+        b = theirs.hasNext() ? theirs.next() : null;
+      } else {
+        a = mine.hasNext() ? mine.next() : null;
+      }
+    }
+    return conflicts;
+  }
+
+  /**
+   * Returns whether the series has neither an occurrence count nor an end date.
+   * @return true if the series repeats forever.
+   */
+  public boolean isUnbounded() {
+    return count == Long.MAX_VALUE;
+  }
+
+  private class OccurrenceIterator implements Iterator<Event> {
+    private long next;
+
+    OccurrenceIterator(long first) {
+      this.next = first;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < count;
+    }
+
+    @Override
+    public Event next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return instanceAt(startOf(next++));
+    }
+  }
+
+  /**
+   * Returns the index of the first occurrence starting at or after the given time,
+   * ignoring the end of the series.
+   */
+  private long indexAtOrAfter(ZonedDateTime time) {
+    if (!time.isAfter(getStart())) {
+      return 0;
+    }
+    LocalDate date = time.withZoneSameInstant(getZoneId()).toLocalDate();
+    long days = ChronoUnit.DAYS.between(getStart().toLocalDate(), date);
+    long n = (days / 7) * weekOffsets.length + nextInWeek[(int) (days % 7)];
+    if (startOf(n).isBefore(time)) {
+      n++;
+    }
+    return n;
+  }
+
+  private ZonedDateTime startOf(long n) {
+    int k = weekOffsets.length;
+    return getStart().plusDays((n / k) * 7 + weekOffsets[(int) (n % k)]);
+  }
+
+  private Event instanceAt(ZonedDateTime start) {
+    Event exception = exceptions.get(start.toEpochSecond());
+    if (exception != null) {
+      // Hand out a copy so callers never share the stored replacement
+      return new Event(exception.getSubject(), shown(exception.getStart()),
+          shown(exception.getEnd()), exception.getLocation(), exception.getDescription(),
+          exception.isPublic());
+    }
+    return new Event(getSubject(), shown(start),
+        getEnd() != null ? shown(start.plus(occurrenceLength())) : null,
+        getLocation(), getDescription(), isPublic());
+  }
+
+  private ZonedDateTime shown(ZonedDateTime time) {
+    return zone == null || time == null ? time : time.withZoneSameInstant(zone);
+  }
+
+  private ZonedDateTime endOf(ZonedDateTime start) {
+    return getEnd() != null ? start.plus(occurrenceLength()) : start.plusDays(1);
+  }
+
+  private Duration occurrenceLength() {
+    return Duration.between(getStart(), getEnd());
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package model;
+
+/**
+ * How a calendar stores its non-recurring events.
+ */
+public enum StorageMode {
+  /** Each event is kept as an immutable record and turned back into an object on demand. */
+  OBJECTS,
+  /** Events are packed into parallel primitive arrays and turned back into objects on demand. */
+  COLUMNAR
+}
@@ -0,0 +1,122 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deduplicates the text fields of events. Every distinct string is stored once and handed
+ * back in place of equal copies, so a calendar full of repeated subjects and rooms keeps a
+ * single instance of each.
+ * Each entry counts the event fields that hold it and is dropped when the last of them lets
+ * go, so renamed subjects and deleted calendars do not stay in the table for good. Lookups
+ * only lock the one map bin they touch, so calendars sharing a dictionary do not contend.
+ * The dictionary also estimates how much memory the dropped copies would have taken.
+ */
+public class StringDictionary {
+  // Approximate size of a String object plus its backing array header on a 64-bit JVM
+  private static final int STRING_OVERHEAD = 40;
+
+  /**
+   * A canonical string and the number of fields holding it. The count is only changed
+   * inside the map's compute functions, which run atomically for their key.
+   */
+  private static final class Entry {
+    final String value;
+    int references;
+
+    Entry(String value) {
+      this.value = value;
+    }
+  }
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder bytesSaved = new LongAdder();
+
+  /**
+   * Returns the canonical instance of a string, adding it if it has not been seen before.
+   * Every call holds a reference to the entry until it is handed back to
+   * {@link #release(String)}.
+   * @param value the string to deduplicate, may be null.
+   * @return the canonical equal string, or null if value is null.
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    lookups.increment();
+    Entry entry = entries.compute(value, (key, existing) -> {
+      Entry held = existing != null ? existing : new Entry(value);
+      held.references++;
+      return held;
+    });
+    if (entry.value != value) {
+      bytesSaved.add(estimateBytes(value));
+    }
+    return entry.value;
+  }
+
+  /**
+   * Drops one reference taken by {@link #intern(String)}, and the string itself once no
+   * field holds it any more.
+   * @param value the string to let go of, may be null.
+   */
+  public void release(String value) {
+    if (value != null) {
+      entries.computeIfPresent(value, (key, entry) -> --entry.references > 0 ? entry : null);
+    }
+  }
+
+  /**
+   * Returns the number of distinct strings stored.
+   * @return the dictionary size.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns how many strings have been looked up, including repeats.
+   * @return the lookup count.
+   */
+  public long getLookups() {
+    return lookups.sum();
+  }
+
+  /**
+   * Returns an estimate of the memory saved by handing out canonical strings instead of
+   * keeping the duplicate copies that were passed in.
+   * @return the estimated bytes saved.
+   */
+  public long getBytesSaved() {
+    return bytesSaved.sum();
+  }
+
+  /**
+   * Replaces the subject, location and description of an event with their canonical instances.
+   * @param event the event to update.
+   */
+  void internFields(IEvent event) {
+    event.setSubject(intern(event.getSubject()));
+    event.setLocation(intern(event.getLocation()));
+    event.setDescription(intern(event.getDescription()));
+  }
+
+  /**
+   * Drops the references taken by {@link #internFields(IEvent)}.
+   * @param event the event whose fields are let go of.
+   */
+  void releaseFields(IEvent event) {
+    release(event.getSubject());
+    release(event.getLocation());
+    release(event.getDescription());
+  }
+
+  private static long estimateBytes(String value) {
+    boolean latin1 = true;
+    for (int i = 0; i < value.length() && latin1; i++) {
+      latin1 = value.charAt(i) < 256;
+    }
+    return STRING_OVERHEAD + (long) value.length() * (latin1 ? 1 : 2);
+  }
+}
@@ -0,0 +1,49 @@
+package model;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * A span of time between a start and an end, such as a free slot shared by several calendars.
+ */
+public class TimeSlot {
+  private final ZonedDateTime start;
+  private final ZonedDateTime end;
+
+  public TimeSlot(ZonedDateTime start, ZonedDateTime end) {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("Slot start and end cannot be null");
+    }
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Gets the start of the slot.
+   * @return the start time.
+   */
+  public ZonedDateTime getStart() {
+    return start;
+  }
+
+  /**
+   * Gets the end of the slot.
+   * @return the end time.
+   */
+  public ZonedDateTime getEnd() {
+    return end;
+  }
+
+  /**
+   * Gets the length of the slot.
+   * @return the duration between start and end.
+   */
+  public Duration getDuration() {
+    return Duration.between(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TimeSlot[%s to %s]", start, end);
+  }
+}
@@ -0,0 +1,177 @@
+package model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts between epoch seconds and local wall-clock seconds in a zone without going
+ * through ZoneRules on every call. The offset transitions of each zone between 1900 and
+ * 2100 are listed once into flat arrays; a conversion is then a check against the interval
+ * of the previous lookup, falling back to a binary search. Instants outside the cached
+ * years are passed to the zone rules.
+ * Local seconds count wall-clock time from 1970-01-01T00:00 as if it were UTC.
+ */
+public final class ZoneOffsetCache {
+  private static final long LOW = LocalDate.of(1900, 1, 1).toEpochDay() * 86400;
+  private static final long HIGH = LocalDate.of(2100, 1, 1).toEpochDay() * 86400;
+  private static final Map<ZoneId, Transitions> ZONES = new ConcurrentHashMap<>();
+
+  private ZoneOffsetCache() {
+  }
+
+  /**
+   * Returns the offset in force in a zone at an instant.
+   * @param zone the zone.
+   * @param epochSecond the instant in epoch seconds.
+   * @return the offset in seconds.
+   */
+  public static int offsetAt(ZoneId zone, long epochSecond) {
+    return transitions(zone).offsetAt(epochSecond);
+  }
+
+  /**
+   * Converts an instant to the wall-clock time of a zone.
+   * @param zone the zone.
+   * @param epochSecond the instant in epoch seconds.
+   * @return the local time in local seconds.
+   */
+  public static long toLocalSecond(ZoneId zone, long epochSecond) {
+    return epochSecond + offsetAt(zone, epochSecond);
+  }
+
+  /**
+   * Returns the date an instant falls on in a zone.
+   * @param zone the zone.
+   * @param epochSecond the instant in epoch seconds.
+   * @return the local date.
+   */
+  public static LocalDate toLocalDate(ZoneId zone, long epochSecond) {
+    return LocalDate.ofEpochDay(Math.floorDiv(toLocalSecond(zone, epochSecond), 86400));
+  }
+
+  /**
+   * Converts a wall-clock time in a zone to an instant, resolving gaps and overlaps the way
+   * {@link ZonedDateTime#of(LocalDateTime, ZoneId)} does: a time in a gap is moved later by
+   * the length of the gap, and a time in an overlap takes the earlier offset.
+   * @param zone the zone.
+   * @param localSecond the local time in local seconds.
+   * @return the instant in epoch seconds.
+   */
+  public static long toEpochSecond(ZoneId zone, long localSecond) {
+    return transitions(zone).toEpochSecond(localSecond);
+  }
+
+  private static Transitions transitions(ZoneId zone) {
+    Transitions cached = ZONES.get(zone);
+    return cached != null ? cached : ZONES.computeIfAbsent(zone, Transitions::new);
+  }
+
+  /**
+   * The offset transitions of one zone within the cached years.
+   */
+  private static final class Transitions {
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    // The offset before the first cached transition, or the only one of a fixed zone
+    private final int firstOffset;
+    private final boolean fixed;
+    private final long[] instants;
+    private final int[] before;
+    private final int[] after;
+    // Index of the interval hit last; consecutive conversions usually share it
+    private volatile int hint = -1;
+
+    Transitions(ZoneId zone) {
+      this.zone = zone;
+      rules = zone.getRules();
+      fixed = rules.isFixedOffset();
+      firstOffset = rules.getOffset(Instant.ofEpochSecond(LOW)).getTotalSeconds();
+      List<ZoneOffsetTransition> found = new ArrayList<>();
+      ZoneOffsetTransition next =
+          fixed ? null : rules.nextTransition(Instant.ofEpochSecond(LOW));
+      while (next != null && next.toEpochSecond() < HIGH) {
+        found.add(next);
+        next = rules.nextTransition(next.getInstant());
+      }
+      instants = new long[found.size()];
+      before = new int[found.size()];
+      after = new int[found.size()];
+      for (int i = 0; i < found.size(); i++) {
+        instants[i] = found.get(i).toEpochSecond();
+        before[i] = found.get(i).getOffsetBefore().getTotalSeconds();
+        after[i] = found.get(i).getOffsetAfter().getTotalSeconds();
+      }
+    }
+
+    int offsetAt(long epochSecond) {
+      if (fixed) {
+        return firstOffset;
+      }
+      if (epochSecond < LOW || epochSecond >= HIGH) {
+        return rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+      }
+      int i = hint;
+      if (i < 0 || i >= instants.length || instants[i] > epochSecond
+          || (i + 1 < instants.length && instants[i + 1] <= epochSecond)) {
+        i = lastAtOrBefore(epochSecond);
+        hint = i;
+      }
+      return i < 0 ? firstOffset : after[i];
+    }
+
+    long toEpochSecond(long localSecond) {
+      if (fixed) {
+        return localSecond - firstOffset;
+      }
+      // Each transition owns a window of local times that are skipped or repeated; below the
+      // window the offset before applies, above it the offset after
+      int lo = 0;
+      int hi = instants.length - 1;
+      int i = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (instants[mid] + Math.min(before[mid], after[mid]) <= localSecond) {
+          i = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      long guess = localSecond - (i < 0 ? firstOffset : after[i]);
+      if (guess < LOW || guess >= HIGH) {
+        return LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC).atZone(zone)
+            .toEpochSecond();
+      }
+      if (i >= 0 && localSecond < instants[i] + Math.max(before[i], after[i])) {
+        return localSecond - before[i];
+      }
+      return guess;
+    }
+
+    private int lastAtOrBefore(long epochSecond) {
+      int lo = 0;
+      int hi = instants.length - 1;
+      int found = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (instants[mid] <= epochSecond) {
+          found = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return found;
+    }
+  }
+}
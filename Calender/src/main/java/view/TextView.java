@@ -1,8 +1,12 @@
 package view;
 
 import model.Event;
+import model.TimeSlot;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 
 /**
  * Handles text-based output for the calendar application.
@@ -10,6 +14,7 @@ import java.util.List;
 public class TextView {
   private static final DateTimeFormatter DATE_TIME_FORMAT =
       DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm");
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
 
   public void printEvents(List<Event> events) {
     if (events == null || events.isEmpty()) {
@@ -27,6 +32,24 @@ public class TextView {
     }
   }
 
+  public void printSlots(List<TimeSlot> slots) {
+    if (slots == null || slots.isEmpty()) {
+      System.out.println("No free slots found.");
+      return;
+    }
+    for (TimeSlot slot : slots) {
+      System.out.println(String.format("Free: %s to %s",
+          slot.getStart().format(DATE_TIME_FORMAT), slot.getEnd().format(DATE_TIME_FORMAT)));
+    }
+  }
+
+  public void printDayCounts(SortedMap<LocalDate, Integer> counts) {
+    for (Map.Entry<LocalDate, Integer> entry : counts.entrySet()) {
+      System.out.println(String.format("%s: %d", entry.getKey().format(DATE_FORMAT),
+          entry.getValue()));
+    }
+  }
+
   public void display(String message) {
     System.out.println(message);
   }
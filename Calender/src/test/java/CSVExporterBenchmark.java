@@ -0,0 +1,68 @@
+import model.CSVExporter;
+import model.Calendar;
+import model.Event;
+import model.IEvent;
+import java.io.File;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the throughput of CSVExporter on a large calendar, sequentially and on the common
+ * fork-join pool. This is not a unit test and is not run by the build; run its main method
+ * by hand, optionally passing the number of events (default 1,000,000) and the number of
+ * timed runs (default 5).
+ */
+public class CSVExporterBenchmark {
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+
+  /**
+   * Fills a calendar, warms up the exporter and prints the time of each timed export.
+   * @param args the optional event count and run count.
+   * @throws Exception if the export fails.
+   */
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    Calendar calendar = new Calendar("benchmark", EST);
+    String[] subjects = {"Standup", "Review, weekly", "1:1 \"sync\"", "Lunch", "Planning"};
+    ZonedDateTime start = ZonedDateTime.now(EST).minusYears(10).withNano(0);
+    List<IEvent> batch = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ZonedDateTime eventStart = start.plusMinutes(30L * i);
+      batch.add(new Event(subjects[i % subjects.length], eventStart, eventStart.plusMinutes(25),
+          i % 3 == 0 ? "Room " + (i % 40) : null, i % 7 == 0 ? "Notes for " + i : null,
+          i % 2 == 0));
+    }
+    calendar.addEvents(batch);
+    batch = null;
+
+    File file = File.createTempFile("export-benchmark", ".csv");
+    file.deleteOnExit();
+    CSVExporter exporter = new CSVExporter();
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    for (int i = 0; i < 2; i++) {
+      exporter.export(calendar, file.getPath());
+      exporter.export(calendar, file.getPath(), pool);
+    }
+    for (int i = 0; i < runs; i++) {
+      long began = System.nanoTime();
+      exporter.export(calendar, file.getPath());
+      report("sequential", i, count, file, System.nanoTime() - began);
+    }
+    for (int i = 0; i < runs; i++) {
+      long began = System.nanoTime();
+      exporter.export(calendar, file.getPath(), pool);
+      report("parallel x" + pool.getParallelism(), i, count, file, System.nanoTime() - began);
+    }
+  }
+
+  private static void report(String mode, int run, int count, File file, long nanos) {
+    System.out.printf("%s run %d: %d events, %.1f MB in %d ms (%.0f events/s, %.1f MB/s)%n",
+        mode, run + 1, count, file.length() / 1e6, nanos / 1_000_000,
+        count * 1e9 / nanos, file.length() * 1e3 / nanos);
+  }
+}
@@ -1,12 +1,24 @@
 import model.CSVExporter;
 import model.Calendar;
 import model.Event;
+import model.IEvent;
+import model.RecurringEvent;
+import model.StorageMode;
 import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -15,6 +27,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class CSVExporterTest {
 
   private static final ZoneId EST = ZoneId.of("America/New_York");
+  private static final ZonedDateTime BASE = ZonedDateTime.of(2025, 3, 1, 0, 0,
+      0, 0, EST);
 
   /**
    * Tests exporting a single event to a CSV file.
@@ -23,12 +37,12 @@ public class CSVExporterTest {
    */
   @Test
   void testExportSingleEvent() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 10,
         0, 0, 0, EST);
     Event e = new Event("Meeting", start, start.plusHours(1), "Office",
         null, true);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test.csv");
@@ -45,12 +59,12 @@ public class CSVExporterTest {
    */
   @Test
   void testExportAllDayEvent() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 0,
         0, 0, 0, EST);
     Event e = new Event("Holiday", start, null, null,
         "Day off", false);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_allday.csv");
@@ -67,18 +81,18 @@ public class CSVExporterTest {
    */
   @Test
   void testExportMultipleEvents() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start1 = ZonedDateTime.of(2025, 3, 1, 9,
         0, 0, 0, EST);
     Event e1 = new Event("Morning Meeting", start1, start1.plusHours(1),
         "Office", "Team sync", true);
-    cal.addEvent(e1, false);
+    cal.addEvent(e1);
 
     ZonedDateTime start2 = ZonedDateTime.of(2025, 3, 1, 14,
         0, 0, 0, EST);
     Event e2 = new Event("Afternoon Review", start2, start2.plusHours(2),
         "Conference Room", "Project update", false);
-    cal.addEvent(e2, false);
+    cal.addEvent(e2);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_multiple.csv");
@@ -97,14 +111,14 @@ public class CSVExporterTest {
    */
   @Test
   void testExportEventSpanningDays() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 23,
         0, 0, 0, EST);
     ZonedDateTime end = ZonedDateTime.of(2025, 3, 2, 1, 0,
         0, 0, EST);
     Event e = new Event("Late Night Shift", start, end, "Workstation",
         "Overnight task", true);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_spanning.csv");
@@ -121,12 +135,12 @@ public class CSVExporterTest {
    */
   @Test
   void testExportEventWithSpecialCharacters() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 10,
         0, 0, 0, EST);
     Event e = new Event("Meeting, with comma", start, start.plusHours(1), "Office",
         "Discuss \"important\" topics", true);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_special.csv");
@@ -143,12 +157,12 @@ public class CSVExporterTest {
    */
   @Test
   void testExportEventNoDescription() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 10, 0,
         0, 0, EST);
     Event e = new Event("Silent Meeting", start, start.plusHours(1), "Office",
         null, true);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_nodesc.csv");
@@ -165,12 +179,12 @@ public class CSVExporterTest {
    */
   @Test
   void testExportEventNoLocation() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 10,
         0, 0, 0, EST);
     Event e = new Event("Virtual Call", start, start.plusHours(1), null,
         "Phone meeting", true);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
 
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_noloc.csv");
@@ -187,7 +201,7 @@ public class CSVExporterTest {
    */
   @Test
   void testExportEmptyCalendar() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_empty.csv");
 
@@ -204,18 +218,139 @@ public class CSVExporterTest {
    */
   @Test
   void testExportEventWithSeconds() throws Exception {
-    Calendar cal = new Calendar();
+    Calendar cal = new Calendar("default", EST);
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 1, 10,
         0, 30, 0, EST);
     ZonedDateTime end = ZonedDateTime.of(2025, 3, 1, 11,
         0, 0, 0, EST);
     Event e = new Event("Precise Meeting", start, end, "Office",
         "Time-sensitive", true);
-    cal.addEvent(e, false);
+    cal.addEvent(e);
     CSVExporter exporter = new CSVExporter();
     String path = exporter.export(cal, "test_withseconds.csv");
     String content = Files.readString(Paths.get("test_withseconds.csv"));
     assertTrue(content.contains("Precise Meeting,03/01/2025,10:00:30,03/01/2025,"
         + "11:00:00,Office,Time-sensitive,No"));
   }
+
+  /**
+   * Tests that the CSV export writes every event in order, formatted like java.time would,
+   * including events around a daylight saving change and fields that need quoting.
+   * @throws Exception if the export fails.
+   */
+  @Test
+  void testExportMatchesFormattedEvents() throws Exception {
+    DateTimeFormatter date = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    DateTimeFormatter time = DateTimeFormatter.ofPattern("HH:mm:ss");
+    String[] subjects = {"Plain", "With, comma", "Say \"hi\"", "caf\u00e9 \u20ac", ""};
+    Random random = new Random(41);
+    Calendar cal = new Calendar("work", EST, StorageMode.COLUMNAR);
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      ZonedDateTime start = BASE.plusMinutes(40L * i).plusSeconds(random.nextInt(60));
+      boolean allDay = i % 50 == 7;
+      String subject = subjects[random.nextInt(subjects.length)];
+      String location = random.nextBoolean() ? subjects[random.nextInt(subjects.length)] : null;
+      Event e = new Event(subject, start, allDay ? null : start.plusMinutes(30), location,
+          null, random.nextBoolean());
+      if (!cal.addEvent(e)) {
+        continue;
+      }
+      String end = allDay ? date.format(start) + ","
+          : time.format(start) + "," + date.format(start.plusMinutes(30)) + ","
+              + time.format(start.plusMinutes(30));
+      expected.add(quote(subject) + "," + date.format(start) + "," + (allDay ? "00:00," : "")
+          + end + "," + quote(location) + ",," + (e.isPublic() ? "No" : "Yes") + "," + EST);
+    }
+    File file = File.createTempFile("export", ".csv");
+    file.deleteOnExit();
+    new CSVExporter().export(cal, file.getPath());
+    List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    assertEquals(expected.size() + 1, lines.size());
+    assertEquals(expected, lines.subList(1, lines.size()));
+  }
+
+  /**
+   * Tests that the parallel CSV export writes exactly the bytes of the sequential one, with
+   * enough events for several chunks and a series whose occurrences cross every chunk, both
+   * for the whole calendar and for a window.
+   * @throws Exception if the export fails.
+   */
+  @Test
+  void testParallelExportMatchesSequential() throws Exception {
+    Random random = new Random(43);
+    Calendar cal = new Calendar("work", EST);
+    cal.addRecurringEvent(new RecurringEvent("Stand, up", BASE.plusHours(12).plusMinutes(30),
+        BASE.plusHours(12).plusMinutes(45), null, null, true, "MTWTF", null, null));
+    List<IEvent> batch = new ArrayList<>();
+    for (int i = 0; i < 40000; i++) {
+      ZonedDateTime start = BASE.plusHours(i).plusSeconds(random.nextInt(600))
+          .plusNanos(random.nextInt(3) * 250_000_000);
+      batch.add(new Event("Event " + (i % 97), start, i % 31 == 0 ? null : start.plusMinutes(20),
+          i % 5 == 0 ? "Room \"" + (i % 7) + "\"" : null, null, random.nextBoolean()));
+    }
+    cal.addEvents(batch);
+    File sequential = File.createTempFile("export", ".csv");
+    File parallel = File.createTempFile("export", ".csv");
+    sequential.deleteOnExit();
+    parallel.deleteOnExit();
+    CSVExporter exporter = new CSVExporter();
+    exporter.export(cal, sequential.getPath());
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      exporter.export(cal, parallel.getPath(), pool);
+      byte[] expected = Files.readAllBytes(sequential.toPath());
+      assertTrue(expected.length > 40000 * 40);
+      assertTrue(Arrays.equals(expected, Files.readAllBytes(parallel.toPath())));
+
+      ZonedDateTime from = BASE.plusDays(200).plusMinutes(5);
+      ZonedDateTime to = BASE.plusDays(900).plusMinutes(5);
+      exporter.export(cal, sequential.getPath(), from, to);
+      exporter.export(cal, parallel.getPath(), from, to, pool);
+      expected = Files.readAllBytes(sequential.toPath());
+      assertTrue(Arrays.equals(expected, Files.readAllBytes(parallel.toPath())));
+      assertEquals(cal.getEventsInRange(from, to).size() + 1,
+          Files.readAllLines(sequential.toPath(), StandardCharsets.UTF_8).size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Tests that the parallel CSV export keeps events of zero length that start exactly on the
+   * starts chunks are split at.
+   * @throws Exception if the export fails.
+   */
+  @Test
+  void testParallelExportKeepsZeroLengthEventsOnSplits() throws Exception {
+    Calendar cal = new Calendar("work", EST);
+    List<IEvent> batch = new ArrayList<>();
+    for (int i = 0; i < 30000; i++) {
+      ZonedDateTime start = BASE.plusMinutes(i);
+      batch.add(new Event("E", start, start, null, null, true));
+    }
+    cal.addEvents(batch);
+    File sequential = File.createTempFile("export", ".csv");
+    File parallel = File.createTempFile("export", ".csv");
+    sequential.deleteOnExit();
+    parallel.deleteOnExit();
+    CSVExporter exporter = new CSVExporter();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      exporter.export(cal, sequential.getPath());
+      exporter.export(cal, parallel.getPath(), pool);
+      byte[] expected = Files.readAllBytes(sequential.toPath());
+      assertEquals(30001, Files.readAllLines(sequential.toPath(), StandardCharsets.UTF_8).size());
+      assertTrue(Arrays.equals(expected, Files.readAllBytes(parallel.toPath())));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static String quote(String field) {
+    if (field == null || !(field.contains(",") || field.contains("\""))) {
+      return field == null ? "" : field;
+    }
+    return "\"" + field.replace("\"", "\"\"") + "\"";
+  }
 }
@@ -1,11 +1,21 @@
 import controller.CalendarController;
 import model.CalendarManager;  // Import CalendarManager
+import model.Event;
 import org.junit.jupiter.api.Test;
 import view.TextView;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.zip.ZipFile;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -34,6 +44,43 @@ public class CalendarControllerTest {
     return new CalendarController(calendarManager, view); // Pass CalendarManager here
   }
 
+  /**
+   * Sets up a CalendarController whose view collects every line it prints.
+   * @param lines the list to add the printed lines to.
+   * @return a new instance of CalendarController
+   */
+  private CalendarController setupController(List<String> lines) {
+    TextView view = new TextView() {
+      @Override
+      public void display(String message) {
+        capture(lines, () -> super.display(message));
+      }
+
+      @Override
+      public void printEvents(List<Event> events) {
+        capture(lines, () -> super.printEvents(events));
+      }
+
+      @Override
+      public void printDayCounts(SortedMap<LocalDate, Integer> counts) {
+        capture(lines, () -> super.printDayCounts(counts));
+      }
+    };
+    return new CalendarController(new CalendarManager(), view);
+  }
+
+  private static void capture(List<String> lines, Runnable print) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(buffer));
+    try {
+      print.run();
+    } finally {
+      System.setOut(out);
+    }
+    lines.addAll(Arrays.asList(buffer.toString().split(System.lineSeparator())));
+  }
+
   /**
    * Tests the creation of a single event.
    */
@@ -228,6 +275,30 @@ public class CalendarControllerTest {
         controller.processCommand("create event IncompleteEvent from 2025-03-01 10:00 to 2025-03-01 11:00"));
   }
 
+  /**
+   * Tests that editing a recurring event by name renames the whole series with one command,
+   * and that an unknown property is reported once rather than once per occurrence.
+   */
+  @Test
+  void testEditRecurringEventByName() {
+    List<String> messages = new ArrayList<>();
+    CalendarController controller = setupController(messages);
+    controller.processCommand("create recurring event Standup from 2025-03-01 09:00 to "
+        + "2025-03-01 09:15 --weekdays MTWTFSS --end-date 2125-03-01 00:00");
+    messages.clear();
+    controller.processCommand("edit event colour Standup from 2025-03-01 09:00 with Red");
+    assertEquals(1, messages.size());
+    assertTrue(messages.get(0).contains("Unknown property"));
+
+    messages.clear();
+    controller.processCommand("edit event name Standup from 2025-03-01 09:00 with Daily");
+    assertEquals(Arrays.asList("Events updated where applicable."), messages);
+    messages.clear();
+    controller.processCommand("print events from 2125-02-28 09:00 to 2125-02-28 09:00");
+    assertEquals(1, messages.size());
+    assertTrue(messages.get(0).startsWith("Daily: 02/28/2125 09:00"));
+  }
+
   /**
    * Tests creating an event without a location.
    */
@@ -247,4 +318,94 @@ public class CalendarControllerTest {
     assertTrue(controller.processCommand(
         "create event MultiDayEvent from 2025-03-01 10:00 to 2025-03-03 10:00"));
   }
+
+  /**
+   * Tests the aggregate count and busy time commands.
+   */
+  @Test
+  void testAggregateCommands() {
+    List<String> lines = new ArrayList<>();
+    CalendarController controller = setupController(lines);
+    controller.processCommand("create event Meeting from 2025-03-01 10:00 to 2025-03-01 11:00");
+    controller.processCommand("create event Review from 2025-03-03 23:30 to 2025-03-04 00:30");
+    lines.clear();
+    assertTrue(controller.processCommand(
+        "count events from 2025-03-01 00:00 to 2025-03-02 00:00 --subject Meeting"));
+    assertEquals(Arrays.asList("1 events"), lines);
+
+    lines.clear();
+    assertTrue(controller.processCommand("count events per day from 2025-03-01 to 2025-03-05"));
+    assertEquals(Arrays.asList("03/01/2025: 1", "03/02/2025: 0", "03/03/2025: 1",
+        "03/04/2025: 1", "03/05/2025: 0"), lines);
+
+    lines.clear();
+    assertTrue(controller.processCommand(
+        "show busy time from 2025-03-01 10:30 to 2025-03-04 00:15"));
+    assertEquals(Arrays.asList("Busy for 75 minutes"), lines);
+
+    lines.clear();
+    assertTrue(controller.processCommand(
+        "show busy time from 2025-03-02 00:00 to 2025-03-01 00:00"));
+    assertEquals(1, lines.size());
+    assertTrue(lines.get(0).endsWith("Window end cannot be before start"));
+  }
+
+  /**
+   * Tests that copying days takes the events starting on them, keeps their length when they
+   * cross midnight and leaves out events that only run in from the day before.
+   */
+  @Test
+  void testCopyEventsAcrossMidnight() {
+    List<String> lines = new ArrayList<>();
+    CalendarController controller = setupController(lines);
+    controller.processCommand("create calendar --name team --timezone America/New_York");
+    controller.processCommand("create event Late from 2025-03-03 22:00 to 2025-03-04 01:00");
+    controller.processCommand("create event Night from 2025-03-04 23:00 to 2025-03-05 02:00");
+    assertTrue(controller.processCommand("copy events on 2025-03-04 --target team to 2025-04-10"));
+    assertTrue(controller.processCommand(
+        "copy events between 2025-03-03 and 2025-03-04 --target team to 2025-05-01"));
+    controller.processCommand("use calendar --name team");
+    lines.clear();
+    controller.processCommand("print events from 2025-04-01 00:00 to 2025-05-31 00:00");
+    assertEquals(Arrays.asList(
+        "Night: 04/10/2025 23:00 to 04/11/2025 02:00 at No location",
+        "Late: 05/01/2025 22:00 to 05/02/2025 01:00 at No location",
+        "Night: 05/02/2025 23:00 to 05/03/2025 02:00 at No location"), lines);
+  }
+
+  /**
+   * Tests exporting a time window of one calendar, of several calendars into a directory and
+   * of all calendars into a zip archive.
+   * @throws Exception if the exported files cannot be read.
+   */
+  @Test
+  void testScopedExportCommands() throws Exception {
+    CalendarController controller = setupControllerWithCapture();
+    Path dir = Files.createTempDirectory("export");
+    controller.processCommand("create calendar --name team --timezone Europe/London");
+    controller.processCommand("create event Early from 2025-03-01 08:00 to 2025-03-01 09:00");
+    controller.processCommand("create event Meeting from 2025-03-01 10:00 to 2025-03-01 11:00");
+    controller.processCommand("create event Later from 2025-03-02 10:00 to 2025-03-02 11:00");
+    controller.processCommand("use calendar --name team");
+    controller.processCommand("create event Sync from 2025-03-01 09:00 to 2025-03-01 10:30");
+
+    controller.processCommand("use calendar --name default");
+    controller.processCommand("export cal " + dir.resolve("window.csv")
+        + " --from 2025-03-01 09:00 --to 2025-03-01 10:00");
+    // Early ends exactly when the window starts, so only Meeting, starting at its end, is in
+    List<String> lines = Files.readAllLines(dir.resolve("window.csv"));
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(1).startsWith("Meeting,"));
+
+    controller.processCommand("export cal " + dir.resolve("slices")
+        + " --from 2025-03-01 00:00 --to 2025-03-01 23:59 --calendars default,team");
+    assertEquals(3, Files.readAllLines(dir.resolve("slices").resolve("default.csv")).size());
+    assertEquals(2, Files.readAllLines(dir.resolve("slices").resolve("team.csv")).size());
+
+    controller.processCommand("export cal " + dir.resolve("all.zip") + " --all --zip");
+    try (ZipFile zip = new ZipFile(dir.resolve("all.zip").toFile())) {
+      assertEquals(2, zip.size());
+      assertTrue(zip.getEntry("default.csv") != null && zip.getEntry("team.csv") != null);
+    }
+  }
 }
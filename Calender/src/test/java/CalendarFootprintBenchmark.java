@@ -0,0 +1,46 @@
+import model.Calendar;
+import model.Event;
+import model.StorageMode;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Measures how much heap a calendar retains per stored event, in both storage modes. This is
+ * not a unit test and is not run by the build; run its main method by hand, optionally
+ * passing the number of events (default 400,000), with a fixed heap and a serial collector
+ * for steady numbers, e.g. -Xmx2g -XX:+UseSerialGC.
+ */
+public class CalendarFootprintBenchmark {
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+
+  /**
+   * Fills a calendar in each storage mode and prints the heap it retains per event.
+   * @param args the optional event count.
+   * @throws InterruptedException if interrupted while waiting for the collector.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+    ZonedDateTime start = ZonedDateTime.of(2025, 1, 1, 0, 0, 0, 0, EST);
+    for (StorageMode mode : StorageMode.values()) {
+      long before = usedHeap();
+      Calendar calendar = new Calendar("benchmark", EST, mode);
+      for (int i = 0; i < count; i++) {
+        ZonedDateTime eventStart = start.plusMinutes(30L * i);
+        calendar.addEvent(new Event("Meeting " + (i % 100), eventStart,
+            eventStart.plusMinutes(25), i % 3 == 0 ? "Room " + (i % 20) : null, null, true));
+      }
+      long retained = usedHeap() - before;
+      System.out.printf("%s: %d events, %.1f MB retained, %d bytes/event%n", mode,
+          calendar.snapshot().size(), retained / 1e6, retained / count);
+    }
+  }
+
+  private static long usedHeap() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,589 @@
+import model.Calendar;
+import model.CalendarSnapshot;
+import model.Conflict;
+import model.Event;
+import model.IEvent;
+import model.RecurringEvent;
+import model.StorageMode;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the indexed lookups of the Calendar class.
+ */
+public class CalendarIndexTest {
+
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+  private static final ZonedDateTime BASE = ZonedDateTime.of(2025, 3, 1, 0, 0,
+      0, 0, EST);
+
+  /**
+   * Tests that range queries treat events as half-open: an event ending exactly at the start
+   * of the window is left out, while one starting exactly at its end is included.
+   */
+  @Test
+  void testRangeTreatsEventsAsHalfOpen() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addEvent(new Event("Before", BASE.minusHours(1), BASE, null, null, true));
+    cal.addEvent(new Event("Across", BASE.plusMinutes(30), BASE.plusHours(1), null, null, true));
+    cal.addEvent(new Event("After", BASE.plusHours(2), BASE.plusHours(3), null, null, true));
+    cal.addEvent(new Event("Outside", BASE.plusHours(4), BASE.plusHours(5), null, null, true));
+    List<IEvent> events = cal.getEventsInRange(BASE, BASE.plusHours(2));
+    assertEquals(2, events.size());
+    assertEquals("Across", events.get(0).getSubject());
+    assertEquals("After", events.get(1).getSubject());
+    assertEquals(2, cal.streamEventsInRange(BASE, BASE.plusHours(2)).count());
+    assertEquals(2, cal.countEvents(BASE, BASE.plusHours(2), null));
+    assertEquals(1, cal.getEventsInRange(BASE.minusMinutes(1), BASE.minusMinutes(1)).size());
+  }
+
+  /**
+   * Tests that an all-day event is found by a query inside its day.
+   */
+  @Test
+  void testRangeFindsAllDayEvent() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addEvent(new Event("Holiday", BASE, null, null, null, true));
+    assertEquals(1, cal.getEventsInRange(BASE.plusHours(12), BASE.plusHours(12)).size());
+    assertEquals(0, cal.getEventsInRange(BASE.plusDays(1), BASE.plusDays(1).plusHours(1)).size());
+    assertEquals(0, cal.getEventsInRange(BASE.plusDays(2), BASE.plusDays(3)).size());
+  }
+
+  /**
+   * Tests the indexed range query against a linear scan over many random events.
+   */
+  @Test
+  void testRangeMatchesLinearScan() {
+    Calendar cal = new Calendar("work", EST);
+    List<IEvent> all = new ArrayList<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      ZonedDateTime start = BASE.plusMinutes(random.nextInt(60 * 24 * 60));
+      IEvent e = new Event("E" + i, start, start.plusMinutes(1 + random.nextInt(120)),
+          null, null, true);
+      if (cal.addEvent(e)) {
+        all.add(e);
+      }
+    }
+    for (int q = 0; q < 200; q++) {
+      ZonedDateTime from = BASE.plusMinutes(random.nextInt(60 * 24 * 60));
+      ZonedDateTime to = from.plusMinutes(random.nextInt(3000));
+      int expected = 0;
+      for (IEvent e : all) {
+        if (!e.getStart().isAfter(to) && e.getEnd().isAfter(from)) {
+          expected++;
+        }
+      }
+      List<IEvent> found = cal.getEventsInRange(from, to);
+      assertEquals(expected, found.size());
+      for (int i = 1; i < found.size(); i++) {
+        assertTrue(!found.get(i).getStart().isBefore(found.get(i - 1).getStart()));
+      }
+    }
+  }
+
+  /**
+   * Tests that exact-start lookups ignore the zone the instant is expressed in.
+   */
+  @Test
+  void testEventAtMatchesInstantInAnyZone() {
+    Calendar cal = new Calendar("work", EST);
+    Event e = new Event("Meeting", BASE.plusHours(10), BASE.plusHours(11), null, null, true);
+    cal.addEvent(e);
+    ZonedDateTime utc = BASE.plusHours(10).withZoneSameInstant(ZoneId.of("UTC"));
+    assertEquals(e, cal.getEventAt(utc));
+    cal.editEventInstance(utc, "name", "Renamed");
+    assertEquals("Renamed", cal.getEventAt(utc).getSubject());
+    assertEquals("Meeting", e.getSubject());
+    assertNull(cal.getEventAt(BASE.plusHours(11)));
+  }
+
+  /**
+   * Tests that the next-event lookup returns the nearest start at or after a time.
+   */
+  @Test
+  void testNextEvent() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addEvent(new Event("Late", BASE.plusHours(15), BASE.plusHours(16), null, null, true));
+    cal.addEvent(new Event("Early", BASE.plusHours(9), BASE.plusHours(10), null, null, true));
+    assertEquals("Early", cal.getNextEvent(BASE).getSubject());
+    assertEquals("Early", cal.getNextEvent(BASE.plusHours(9)).getSubject());
+    assertEquals("Late", cal.getNextEvent(BASE.plusHours(9).plusMinutes(1)).getSubject());
+    assertNull(cal.getNextEvent(BASE.plusHours(15).plusSeconds(1)));
+  }
+
+  /**
+   * Tests that start lookups, answered by walking the interval tree, match a linear scan.
+   */
+  @Test
+  void testStartLookupsMatchLinearScan() {
+    Calendar cal = new Calendar("work", EST);
+    List<IEvent> all = new ArrayList<>();
+    Random random = new Random(5);
+    for (int i = 0; i < 1000; i++) {
+      ZonedDateTime start = BASE.plusMinutes(5 * random.nextInt(20_000));
+      IEvent e = new Event("E" + i, start, start.plusMinutes(5 * (1 + random.nextInt(30))),
+          null, null, true);
+      if (cal.addEvent(e)) {
+        all.add(e);
+      }
+    }
+    all.sort((a, b) -> a.getStart().compareTo(b.getStart()));
+    for (int q = 0; q < 300; q++) {
+      ZonedDateTime time = BASE.plusMinutes(5 * random.nextInt(21_000));
+      IEvent next = all.stream().filter(e -> !e.getStart().isBefore(time)).findFirst()
+          .orElse(null);
+      assertEquals(next, cal.getNextEvent(time));
+      IEvent at = next != null && next.getStart().isEqual(time) ? next : null;
+      assertEquals(at, cal.getEventAt(time));
+    }
+  }
+
+  /**
+   * Tests busy checks across merged, touching and all-day events.
+   */
+  @Test
+  void testIsBusyAcrossMergedEvents() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addEvent(new Event("A", BASE.plusHours(9), BASE.plusHours(10), null, null, true));
+    cal.addEvent(new Event("B", BASE.plusHours(10), BASE.plusHours(11), null, null, true));
+    cal.addEvent(new Event("C", BASE.plusHours(8), BASE.plusHours(9), null, null, true));
+    cal.addEvent(new Event("Holiday", BASE.plusDays(2), null, null, null, true));
+    assertFalse(cal.isBusy(BASE.plusHours(7)));
+    assertTrue(cal.isBusy(BASE.plusHours(8)));
+    assertTrue(cal.isBusy(BASE.plusHours(10)));
+    assertTrue(cal.isBusy(BASE.plusHours(10).plusMinutes(59)));
+    assertFalse(cal.isBusy(BASE.plusHours(11)));
+    assertTrue(cal.isBusy(BASE.plusDays(2).plusHours(23)));
+    assertFalse(cal.isBusy(BASE.plusDays(3)));
+  }
+
+  /**
+   * Tests that range queries and busy checks see the occurrences of a recurring series.
+   */
+  @Test
+  void testQueriesSeeRecurringOccurrences() {
+    Calendar cal = new Calendar("work", EST);
+    ZonedDateTime start = BASE.plusHours(10); // Saturday
+    cal.addRecurringEvent(new RecurringEvent("Standup", start, start.plusMinutes(30), null,
+        null, true, "", null, null));
+    cal.addEvent(new Event("Lunch", BASE.plusDays(1).plusHours(12), BASE.plusDays(1).plusHours(13),
+        null, null, true));
+    List<IEvent> events = cal.getEventsInRange(BASE.plusDays(1), BASE.plusDays(2).plusHours(10));
+    assertEquals(3, events.size());
+    assertEquals("Standup", events.get(0).getSubject());
+    assertEquals("Lunch", events.get(1).getSubject());
+    assertTrue(cal.isBusy(start.plusYears(3).plusMinutes(10)));
+    assertFalse(cal.isBusy(start.plusYears(3).plusMinutes(30)));
+    assertEquals("Standup", cal.getEventAt(start.plusDays(40)).getSubject());
+  }
+
+  /**
+   * Tests that overlapping events and series are declined while touching ones are accepted.
+   */
+  @Test
+  void testConflictingEventsAreDeclined() {
+    Calendar cal = new Calendar("work", EST);
+    assertTrue(cal.addEvent(new Event("A", BASE.plusHours(9), BASE.plusHours(10),
+        null, null, true)));
+    assertFalse(cal.addEvent(new Event("B", BASE.plusHours(9).plusMinutes(30),
+        BASE.plusHours(11), null, null, true)));
+    assertTrue(cal.addEvent(new Event("C", BASE.plusHours(10), BASE.plusHours(11),
+        null, null, true)));
+    assertFalse(cal.addEvent(new Event("Holiday", BASE, null, null, null, true)));
+
+    ZonedDateTime monday = BASE.plusDays(2).plusHours(12); // Monday noon
+    assertTrue(cal.addRecurringEvent(new RecurringEvent("Lunch", monday, monday.plusHours(1),
+        null, null, true, "MWF", null, null)));
+    assertFalse(cal.addEvent(new Event("Clash", monday.plusYears(2).plusMinutes(30),
+        monday.plusYears(2).plusMinutes(90), null, null, true)));
+    assertFalse(cal.addRecurringEvent(new RecurringEvent("Sync", monday.plusDays(1).plusMinutes(30),
+        monday.plusDays(1).plusMinutes(45), null, null, true, "TF", null, null)));
+    assertTrue(cal.addRecurringEvent(new RecurringEvent("Sync", monday.plusDays(1).plusMinutes(60),
+        monday.plusDays(1).plusMinutes(75), null, null, true, "TF", null, null)));
+    assertFalse(cal.addRecurringEvent(new RecurringEvent("Review", BASE.plusHours(8),
+        BASE.plusHours(9).plusMinutes(1), null, null, true, "S", 1, null)));
+  }
+
+  /**
+   * Tests that the conflict report of a series matches pairwise checks of its occurrences.
+   */
+  @Test
+  void testFindConflictsMatchesPairwiseCheck() {
+    Calendar cal = new Calendar("work", EST);
+    List<IEvent> stored = new ArrayList<>();
+    Random random = new Random(7);
+    for (int i = 0; i < 500; i++) {
+      ZonedDateTime start = BASE.plusMinutes(15 * random.nextInt(4 * 24 * 365));
+      IEvent e = new Event("E" + i, start, start.plusMinutes(15 + 15 * random.nextInt(8)),
+          null, null, true);
+      if (cal.addEvent(e)) {
+        stored.add(e);
+      }
+    }
+    ZonedDateTime start = BASE.plusHours(9).plusMinutes(30);
+    RecurringEvent re = new RecurringEvent("Standup", start, start.plusMinutes(45), null,
+        null, true, "MTWTF", null, start.plusMonths(11));
+    int expected = 0;
+    for (Event occurrence : re.expandInstances()) {
+      for (IEvent e : stored) {
+        if (occurrence.conflictsWith(e)) {
+          expected++;
+        }
+      }
+    }
+    List<Conflict> conflicts = cal.findConflicts(re);
+    assertEquals(expected, conflicts.size());
+    for (Conflict c : conflicts) {
+      assertTrue(c.getOccurrence().conflictsWith(c.getExisting()));
+    }
+    assertEquals(expected == 0, cal.addRecurringEvent(re));
+  }
+
+  /**
+   * Tests that a bulk insert accepts and declines the same events as one-by-one inserts.
+   */
+  @Test
+  void testAddEventsMatchesSequentialInserts() {
+    Calendar bulk = new Calendar("bulk", EST);
+    Calendar single = new Calendar("single", EST);
+    Random random = new Random(3);
+    for (int round = 0; round < 3; round++) {
+      List<IEvent> batch = new ArrayList<>();
+      for (int i = 0; i < 1500; i++) {
+        ZonedDateTime start = BASE.plusMinutes(10 * random.nextInt(6 * 24 * 60));
+        batch.add(new Event("E" + i, start, start.plusMinutes(10 + 10 * random.nextInt(12)),
+            null, null, true));
+      }
+      List<IEvent> declined = bulk.addEvents(batch);
+      batch.sort((a, b) -> a.getStart().compareTo(b.getStart()));
+      int rejected = 0;
+      for (IEvent e : batch) {
+        if (!single.addEvent(e)) {
+          rejected++;
+        }
+      }
+      assertEquals(rejected, declined.size());
+    }
+    for (int q = 0; q < 100; q++) {
+      ZonedDateTime from = BASE.plusMinutes(random.nextInt(6 * 24 * 60 * 10));
+      ZonedDateTime to = from.plusMinutes(random.nextInt(600));
+      assertEquals(single.getEventsInRange(from, to).size(),
+          bulk.getEventsInRange(from, to).size());
+      assertEquals(single.isBusy(from), bulk.isBusy(from));
+    }
+  }
+
+  /**
+   * Tests that a columnar calendar answers queries exactly like an object-backed one.
+   */
+  @Test
+  void testColumnarStorageMatchesObjectStorage() {
+    Calendar objects = new Calendar("objects", EST);
+    Calendar columns = new Calendar("columns", EST, StorageMode.COLUMNAR);
+    Random random = new Random(11);
+    for (int i = 0; i < 1000; i++) {
+      ZonedDateTime start = BASE.plusMinutes(30 * random.nextInt(2 * 24 * 90));
+      ZonedDateTime end = random.nextInt(20) == 0 ? null
+          : start.plusMinutes(30 + 30 * random.nextInt(4));
+      Event e = new Event("E" + (i % 7), start, end, i % 3 == 0 ? null : "Room " + (i % 5),
+          i % 2 == 0 ? null : "Notes", i % 4 != 0);
+      assertEquals(objects.addEvent(e), columns.addEvent(e));
+    }
+    for (int q = 0; q < 100; q++) {
+      ZonedDateTime from = BASE.plusMinutes(random.nextInt(24 * 60 * 90));
+      ZonedDateTime to = from.plusMinutes(random.nextInt(3000));
+      assertEquals(objects.getEventsInRange(from, to), columns.getEventsInRange(from, to));
+      assertEquals(objects.isBusy(from), columns.isBusy(from));
+      assertEquals(objects.getNextEvent(from), columns.getNextEvent(from));
+    }
+    ZonedDateTime start = columns.getNextEvent(BASE).getStart();
+    columns.editEventInstance(start, "name", "Renamed");
+    assertEquals("Renamed", columns.getEventAt(start).getSubject());
+  }
+
+  /**
+   * Tests that editing events by subject edits a series as a whole, however far it runs,
+   * splits a series that started earlier and leaves published snapshots unchanged.
+   */
+  @Test
+  void testEditEventsEditsWholeSeries() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addRecurringEvent(new RecurringEvent("Standup", BASE.plusHours(9),
+        BASE.plusHours(9).plusMinutes(15), null, null, true, "", null, null));
+    cal.addEvent(new Event("Standup", BASE.minusHours(12), BASE.minusHours(11), null, null, true));
+    cal.addEvent(new Event("Standup", BASE.plusHours(12), BASE.plusHours(13), null, null, true));
+    CalendarSnapshot before = cal.snapshot();
+    ZonedDateTime far = ZonedDateTime.of(2226, 1, 1, 9, 0, 0, 0, EST);
+
+    assertEquals(2, cal.editEvents("Standup", BASE, "name", "Daily"));
+    assertEquals("Daily", cal.getEventAt(far).getSubject());
+    assertEquals("Daily", cal.getEventAt(BASE.plusHours(12)).getSubject());
+    assertEquals("Standup", cal.getEventAt(BASE.minusHours(12)).getSubject());
+    assertEquals("Standup", before.getEventsInRange(far, far).get(0).getSubject());
+    assertThrows(IllegalArgumentException.class,
+        () -> cal.editEvents("Daily", BASE, "colour", "Red"));
+
+    assertEquals(1, cal.editEvents("Daily", BASE.plusDays(10), "name", "Later"));
+    List<IEvent> month = cal.getEventsInRange(BASE, BASE.plusDays(30));
+    assertEquals(31, month.size());
+    assertEquals("Daily", cal.getEventAt(BASE.plusDays(9).plusHours(9)).getSubject());
+    assertEquals("Later", cal.getEventAt(BASE.plusDays(10).plusHours(9)).getSubject());
+    assertEquals("Later", cal.getEventAt(far).getSubject());
+
+    cal.editEventInstance(BASE.plusHours(9), "name", "Morning");
+    assertEquals("Morning", cal.getEventAt(BASE.plusDays(9).plusHours(9)).getSubject());
+    assertEquals("Later", cal.getEventAt(BASE.plusDays(10).plusHours(9)).getSubject());
+  }
+
+  /**
+   * Tests that editing by subject finds occurrences renamed on their own, and that editing a
+   * single instance only accepts times some event or occurrence starts at.
+   */
+  @Test
+  void testEditsMatchOccurrencesOnly() {
+    Calendar cal = new Calendar("work", EST);
+    // The series starts on a Saturday, outside its Monday and Wednesday pattern
+    cal.addRecurringEvent(new RecurringEvent("Standup", BASE.plusHours(9),
+        BASE.plusHours(10), null, null, true, "MW", 4, null));
+    ZonedDateTime monday = BASE.plusDays(2).plusHours(9);
+    assertThrows(IllegalArgumentException.class,
+        () -> cal.editEventInstance(BASE.plusHours(9), "name", "Renamed"));
+    assertNull(cal.getEventAt(BASE.plusHours(9)));
+    assertEquals("Standup", cal.getEventAt(monday).getSubject());
+
+    cal.editEventInstance(monday.plusDays(2), "name", "One");
+    assertEquals(1, cal.editEvents("One", BASE, "name", "Two"));
+    assertEquals("Two", cal.getEventAt(monday.plusDays(2)).getSubject());
+    assertEquals("Standup", cal.getEventAt(monday.plusDays(7)).getSubject());
+    assertEquals(0, cal.editEvents("One", BASE, "name", "Three"));
+    assertEquals(0, cal.editEvents("Two", monday.plusDays(3), "name", "Three"));
+  }
+
+  /**
+   * Tests that editing a single occurrence leaves snapshots published before it unchanged.
+   */
+  @Test
+  void testOccurrenceEditLeavesSnapshotsUnchanged() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addRecurringEvent(new RecurringEvent("Standup", BASE.plusHours(9),
+        BASE.plusHours(9).plusMinutes(15), null, null, true, "", 30, null));
+    CalendarSnapshot before = cal.snapshot();
+    ZonedDateTime third = BASE.plusDays(2).plusHours(9);
+    cal.editEventInstance(third, "name", "Retro");
+    CalendarSnapshot after = cal.snapshot();
+    cal.editEventInstance(third.plusDays(1), "name", "Demo");
+
+    assertEquals("Standup", before.getEventsInRange(third, third).get(0).getSubject());
+    assertEquals("Retro", after.getEventsInRange(third, third).get(0).getSubject());
+    assertEquals("Standup", after.getEventsInRange(third.plusDays(1), third.plusDays(1))
+        .get(0).getSubject());
+    assertEquals("Demo", cal.getEventAt(third.plusDays(1)).getSubject());
+    assertEquals("Retro", cal.getEventAt(third).getSubject());
+  }
+
+  /**
+   * Tests that streaming a window yields exactly the events of the list query, in order.
+   */
+  @Test
+  void testStreamMatchesListQuery() {
+    Calendar cal = new Calendar("work", EST);
+    ZonedDateTime monday = ZonedDateTime.of(2025, 3, 3, 7, 0, 0, 0, EST);
+    cal.addRecurringEvent(new RecurringEvent("Gym", monday, monday.plusMinutes(45), null, null,
+        true, "MWF", null, null));
+    cal.addRecurringEvent(new RecurringEvent("Review", monday.plusHours(10),
+        monday.plusHours(11), null, null, true, "T", 40, null));
+    Random random = new Random(17);
+    for (int i = 0; i < 2000; i++) {
+      ZonedDateTime start = monday.plusMinutes(15 * random.nextInt(4 * 24 * 120));
+      cal.addEvent(new Event("E" + i, start,
+          random.nextInt(30) == 0 ? null : start.plusMinutes(15 * (1 + random.nextInt(8))),
+          null, null, true));
+    }
+    for (int q = 0; q < 200; q++) {
+      ZonedDateTime from = monday.plusMinutes(random.nextInt(24 * 60 * 120));
+      ZonedDateTime to = from.plusMinutes(random.nextInt(24 * 60 * 10));
+      assertEquals(cal.getEventsInRange(from, to),
+          cal.streamEventsInRange(from, to).collect(Collectors.toList()));
+    }
+    assertEquals(3, cal.streamEventsInRange(monday, monday.plusYears(50)).limit(3).count());
+  }
+
+  /**
+   * Tests that day lookups list exactly the events covering some part of the days, also
+   * after a zone change. Events span [start, end), so one ending at midnight belongs only to
+   * the day before.
+   */
+  @Test
+  void testDayLookupMatchesRangeQuery() {
+    Calendar cal = new Calendar("work", EST);
+    ZonedDateTime monday = ZonedDateTime.of(2025, 3, 3, 7, 0, 0, 0, EST);
+    cal.addRecurringEvent(new RecurringEvent("Gym", monday, monday.plusMinutes(45), null, null,
+        true, "MWF", null, null));
+    Random random = new Random(23);
+    for (int i = 0; i < 1500; i++) {
+      ZonedDateTime start = monday.plusMinutes(15 * random.nextInt(4 * 24 * 60));
+      cal.addEvent(new Event("E" + i, start,
+          random.nextInt(20) == 0 ? null : start.plusMinutes(15 * (1 + random.nextInt(200))),
+          null, null, true));
+    }
+    for (ZoneId zone : new ZoneId[] {EST, ZoneId.of("Asia/Kolkata")}) {
+      cal.setTimezone(zone);
+      List<IEvent> all = cal.getEventsInRange(monday.minusDays(30), monday.plusDays(120));
+      for (int q = 0; q < 100; q++) {
+        LocalDate from = monday.toLocalDate().plusDays(random.nextInt(60));
+        LocalDate to = from.plusDays(random.nextInt(4));
+        ZonedDateTime dayStart = from.atStartOfDay(zone);
+        ZonedDateTime dayEnd = to.plusDays(1).atStartOfDay(zone);
+        List<IEvent> expected = all.stream()
+            .filter(e -> e.getStart().isBefore(dayEnd)
+                && (e.getEnd() != null ? e.getEnd() : e.getStart().plusDays(1)).isAfter(dayStart))
+            .collect(Collectors.toList());
+        assertEquals(expected, cal.getEventsOnDays(from, to));
+        SortedMap<LocalDate, Integer> counts = cal.countEventsPerDay(from, to);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+          assertEquals(cal.getEventsOnDays(day, day).size(), counts.get(day).intValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that an event ending exactly at midnight is listed and counted only under the
+   * day it covers.
+   */
+  @Test
+  void testEventEndingAtMidnightCoversOneDay() {
+    Calendar cal = new Calendar("work", EST);
+    cal.addEvent(new Event("Late", BASE.plusHours(22), BASE.plusDays(1), null, null, true));
+    cal.addEvent(new Event("Holiday", BASE.plusDays(2), null, null, null, true));
+    LocalDate day = BASE.toLocalDate();
+    assertEquals(1, cal.getEventsOnDays(day, day).size());
+    assertEquals(0, cal.getEventsOnDays(day.plusDays(1), day.plusDays(1)).size());
+    assertEquals(1, cal.getEventsOnDays(day.plusDays(2), day.plusDays(2)).size());
+    assertEquals(0, cal.getEventsOnDays(day.plusDays(3), day.plusDays(3)).size());
+    SortedMap<LocalDate, Integer> counts = cal.countEventsPerDay(day, day.plusDays(3));
+    assertEquals(Arrays.asList(1, 0, 1, 0), new ArrayList<>(counts.values()));
+  }
+
+  /**
+   * Tests that aggregates agree with what the listed events add up to.
+   */
+  @Test
+  void testAggregatesMatchListedEvents() {
+    Calendar cal = new Calendar("work", EST);
+    ZonedDateTime monday = ZonedDateTime.of(2025, 3, 3, 7, 0, 0, 0, EST);
+    cal.addRecurringEvent(new RecurringEvent("Gym", monday, monday.plusMinutes(45), null, null,
+        true, "MWF", null, null));
+    Random random = new Random(29);
+    for (int i = 0; i < 1000; i++) {
+      ZonedDateTime start = monday.plusMinutes(15 * random.nextInt(4 * 24 * 60));
+      cal.addEvent(new Event("E" + (i % 3), start,
+          random.nextInt(20) == 0 ? null : start.plusMinutes(15 * (1 + random.nextInt(40))),
+          null, null, true));
+    }
+    for (int q = 0; q < 100; q++) {
+      ZonedDateTime from = monday.plusMinutes(random.nextInt(24 * 60 * 60));
+      ZonedDateTime to = from.plusMinutes(random.nextInt(24 * 60 * 5));
+      List<IEvent> listed = cal.getEventsInRange(from, to);
+      assertEquals(listed.size(), cal.countEvents(from, to, null));
+      assertEquals(listed.stream().filter(e -> e.getSubject().equals("E1")).count(),
+          cal.countEvents(from, to, "E1"));
+      long seconds = 0;
+      for (IEvent e : listed) {
+        ZonedDateTime end = e.getEnd() != null ? e.getEnd() : e.getStart().plusDays(1);
+        ZonedDateTime start = e.getStart().isBefore(from) ? from : e.getStart();
+        seconds += Math.max(0, Duration.between(start, end.isAfter(to) ? to : end).getSeconds());
+      }
+      assertEquals(seconds, cal.getBusyDuration(from, to).getSeconds());
+    }
+    assertThrows(IllegalArgumentException.class,
+        () -> cal.getBusyDuration(monday.plusHours(1), monday));
+
+    // A day-long daily series runs an hour into the next occurrence as clocks go forward
+    Calendar daily = new Calendar("daily", EST);
+    ZonedDateTime saturday = ZonedDateTime.of(2025, 3, 8, 9, 0, 0, 0, EST);
+    daily.addRecurringEvent(new RecurringEvent("On call", saturday, saturday.plusHours(24),
+        null, null, true, "", 3, null));
+    assertEquals(Duration.ofHours(47),
+        daily.getBusyDuration(saturday, saturday.plusDays(2)));
+    LocalDate first = monday.toLocalDate();
+    SortedMap<LocalDate, Integer> perDay = cal.countEventsPerDay(first, first.plusDays(30));
+    assertEquals(31, perDay.size());
+    for (LocalDate day : perDay.keySet()) {
+      assertEquals(cal.getEventsOnDays(day, day).size(), (int) perDay.get(day));
+    }
+  }
+
+  /**
+   * Tests that changing the calendar timezone moves stored events into it, keeping instants.
+   */
+  @Test
+  void testTimezoneChangeRezonesStoredEvents() {
+    ZoneId tokyo = ZoneId.of("Asia/Tokyo");
+    for (StorageMode mode : StorageMode.values()) {
+      Calendar cal = new Calendar("work", EST, mode);
+      cal.addEvent(new Event("A", BASE.plusHours(9), BASE.plusHours(10), null, null, true));
+      cal.addEvent(new Event("B", BASE.plusDays(1), null, null, null, true));
+      CalendarSnapshot before = cal.snapshot();
+      cal.setTimezone(tokyo);
+      List<IEvent> events = cal.getEventsInRange(BASE, BASE.plusDays(2));
+      assertEquals(2, events.size());
+      for (IEvent e : events) {
+        assertEquals(tokyo, e.getStart().getZone());
+        assertEquals(tokyo, e.getZoneId());
+      }
+      assertTrue(events.get(0).getStart().isEqual(BASE.plusHours(9)));
+      assertTrue(events.get(0).getEnd().isEqual(BASE.plusHours(10)));
+      assertEquals(EST, before.getEventsInRange(BASE, BASE.plusDays(2)).get(0).getZoneId());
+      assertTrue(cal.isBusy(BASE.plusDays(1).plusHours(23)));
+    }
+  }
+
+  /**
+   * Tests that changing the calendar timezone also shows series occurrences in the new zone,
+   * at the same instants, next to the stored events.
+   */
+  @Test
+  void testTimezoneChangeRezonesSeries() {
+    ZoneId london = ZoneId.of("Europe/London");
+    Calendar cal = new Calendar("work", EST);
+    cal.addRecurringEvent(new RecurringEvent("Daily", BASE.plusHours(9), BASE.plusHours(10),
+        null, null, true, "", 5, null));
+    ZonedDateTime single = BASE.plusDays(2).plusHours(10);
+    cal.addEvent(new Event("Single", single, single.plusHours(1), null, null, true));
+    cal.editEventInstance(BASE.plusDays(1).plusHours(9), "name", "Moved");
+    cal.setTimezone(london);
+    List<IEvent> events = cal.getEventsInRange(BASE, BASE.plusDays(5));
+    assertEquals(6, events.size());
+    for (IEvent e : events) {
+      assertEquals(london, e.getStart().getZone());
+      assertEquals(london, e.getEnd().getZone());
+    }
+    assertEquals("Moved", events.get(1).getSubject());
+    assertEquals(14, events.get(1).getStart().getHour());
+    assertEquals("Single", events.get(3).getSubject());
+    assertEquals(15, events.get(3).getStart().getHour());
+    assertEquals(14, events.get(4).getStart().getHour());
+    assertTrue(events.get(4).getStart().isEqual(BASE.plusDays(3).plusHours(9)));
+    List<IEvent> day = cal.getEventsOnDays(LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 3));
+    assertEquals(2, day.size());
+    assertEquals(london, day.get(0).getStart().getZone());
+    assertTrue(cal.isBusy(BASE.plusDays(4).plusHours(9).plusMinutes(30)));
+  }
+}
@@ -1,7 +1,17 @@
 import model.CalendarManager;
+import model.Event;
+import model.TimeSlot;
 import org.junit.Before;
 import org.junit.Test;
+import java.time.Duration;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.junit.Assert.*;
 
 public class CalendarManagerTest {
@@ -56,6 +66,23 @@ public class CalendarManagerTest {
     assertNull(manager.getCalendar("Work"));
   }
 
+  @Test
+  public void testDeletedCalendarReleasesSharedStrings() {
+    ZoneId est = ZoneId.of("America/New_York");
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 9, 0, 0, 0, est);
+    manager.createCalendar("Work", est);
+    manager.getCalendar("Work").addEvent(new Event("Offsite", start, start.plusHours(1),
+        "Room 4B", null, true));
+    manager.getCalendar("Work").addEvent(new Event("Planning", start.plusHours(2),
+        start.plusHours(3), "Room 4B", null, true));
+    manager.getCalendar("default").addEvent(new Event("Offsite", start, start.plusHours(1),
+        null, null, true));
+    assertEquals(3, manager.getStringDictionary().size());
+    manager.deleteCalendar("Work");
+    // Only the subject still used by the default calendar is kept
+    assertEquals(1, manager.getStringDictionary().size());
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testDeleteLastCalendar() {
     manager.deleteCalendar("default");
@@ -72,4 +99,68 @@ public class CalendarManagerTest {
   public void testSetNonExistentCalendar() {
     manager.setCurrentCalendar("NonExistent");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testFindFreeSlotsAcrossCalendars() {
+    ZoneId est = ZoneId.of("America/New_York");
+    ZonedDateTime day = ZonedDateTime.of(2025, 3, 3, 0, 0, 0, 0, est);
+    manager.createCalendar("Work", ZoneId.of("Europe/London"));
+    manager.getCalendar("default").addEvent(new Event("Standup", day.plusHours(9),
+        day.plusHours(10), null, null, true));
+    manager.getCalendar("Work").addEvent(new Event("Review", day.plusHours(9).plusMinutes(30),
+        day.plusHours(11), null, null, true));
+    manager.getCalendar("Work").addEvent(new Event("Sync", day.plusHours(11).plusMinutes(20),
+        day.plusHours(12), null, null, true));
+    List<TimeSlot> slots = manager.findFreeSlots(Arrays.asList("default", "Work"),
+        day.plusHours(8), day.plusHours(17), Duration.ofMinutes(30));
+    assertEquals(2, slots.size());
+    assertEquals(day.plusHours(8), slots.get(0).getStart());
+    assertEquals(day.plusHours(9), slots.get(0).getEnd());
+    assertEquals(day.plusHours(12), slots.get(1).getStart());
+    assertEquals(day.plusHours(17), slots.get(1).getEnd());
+  }
+
+  @Test
+  public void testConcurrentWritersAndReaders() throws Exception {
+    ZoneId est = ZoneId.of("America/New_York");
+    ZonedDateTime day = ZonedDateTime.of(2025, 3, 3, 0, 0, 0, 0, est);
+    int threads = 4;
+    int perThread = 500;
+    for (int t = 0; t < threads; t++) {
+      manager.createCalendar("Cal" + t, est);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads * 2);
+    List<Future<?>> tasks = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      String name = "Cal" + t;
+      tasks.add(pool.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          // Every thread also writes the shared default calendar in its own slots
+          ZonedDateTime start = day.plusHours(i);
+          manager.getCalendar(name).addEvent(new Event("E", start, start.plusMinutes(30),
+              null, null, true));
+          ZonedDateTime shared = start.plusMinutes(10 * Integer.parseInt(name.substring(3)));
+          manager.getCalendar("default").addEvent(new Event("S", shared, shared.plusMinutes(5),
+              null, null, true));
+        }
+      }));
+      tasks.add(pool.submit(() -> {
+        for (int i = 0; i < perThread; i++) {
+          manager.getCalendar("default").getEventsInRange(day, day.plusDays(30));
+          manager.getCalendar(name).isBusy(day.plusHours(i));
+        }
+      }));
+    }
+    for (Future<?> task : tasks) {
+      task.get();
+    }
+    pool.shutdown();
+    ZonedDateTime end = day.plusHours(perThread);
+    for (int t = 0; t < threads; t++) {
+      assertEquals(perThread, manager.getCalendar("Cal" + t).getEventsInRange(day, end).size());
+    }
+    assertEquals(threads * perThread,
+        manager.getCalendar("default").getEventsInRange(day, end).size());
+    assertEquals(2, manager.getStringDictionary().size());
+  }
+}
@@ -0,0 +1,52 @@
+import model.CalendarManager;
+import model.CalendarSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the CalendarSession class.
+ */
+public class CalendarSessionTest {
+  private CalendarManager manager;
+
+  @BeforeEach
+  void setUp() {
+    manager = new CalendarManager();
+    manager.createCalendar("Work", ZoneId.of("Europe/London"));
+    manager.createCalendar("Home", ZoneId.of("Asia/Tokyo"));
+  }
+
+  /**
+   * Tests that sessions on one manager switch calendars independently.
+   */
+  @Test
+  void testSessionsKeepTheirOwnCurrentCalendar() {
+    CalendarSession first = new CalendarSession(manager);
+    CalendarSession second = new CalendarSession(manager);
+    first.useCalendar("Work");
+    second.useCalendar("Home");
+    assertEquals("Work", first.getCurrentCalendar().getName());
+    assertEquals("Home", second.getCurrentCalendar().getName());
+    assertEquals("default", manager.getCurrentCalendar().getName());
+    assertThrows(IllegalArgumentException.class, () -> first.useCalendar("Missing"));
+    assertEquals("Work", first.getCurrentCalendar().getName());
+  }
+
+  /**
+   * Tests that a session follows renames and leaves deleted calendars.
+   */
+  @Test
+  void testSessionFollowsRenameAndDelete() {
+    CalendarSession session = new CalendarSession(manager);
+    session.useCalendar("Work");
+    manager.renameCalendar("Work", "Office");
+    assertEquals("Office", session.getCurrentCalendar().getName());
+    manager.deleteCalendar("Office");
+    assertSame(manager.getCurrentCalendar(), session.getCurrentCalendar());
+  }
+}
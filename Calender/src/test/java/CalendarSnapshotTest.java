@@ -0,0 +1,96 @@
+import model.Calendar;
+import model.CalendarSnapshot;
+import model.Event;
+import model.IEvent;
+import model.StorageMode;
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the CalendarSnapshot class, the read-only view of a calendar at one point
+ * in time.
+ */
+public class CalendarSnapshotTest {
+
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+  private static final ZonedDateTime BASE = ZonedDateTime.of(2025, 3, 1, 0, 0,
+      0, 0, EST);
+
+  /**
+   * Tests that a snapshot keeps answering from the state it was taken in.
+   */
+  @Test
+  void testSnapshotIsUnaffectedByLaterChanges() {
+    for (StorageMode mode : StorageMode.values()) {
+      Calendar cal = new Calendar("work", EST, mode);
+      for (int i = 0; i < 40; i++) {
+        cal.addEvent(new Event("E" + i, BASE.plusHours(i), BASE.plusHours(i).plusMinutes(30),
+            null, null, true));
+      }
+      CalendarSnapshot before = cal.snapshot();
+      cal.addEvent(new Event("Late", BASE.plusDays(5), BASE.plusDays(5).plusHours(1),
+          null, null, true));
+      cal.editEventInstance(BASE, "name", "Renamed");
+      assertEquals(40, before.size());
+      assertEquals("E0", before.getEventsInRange(BASE, BASE).get(0).getSubject());
+      assertFalse(before.isBusy(BASE.plusDays(5)));
+      assertEquals("Renamed", cal.snapshot().getEventsInRange(BASE, BASE).get(0).getSubject());
+      assertTrue(cal.snapshot().isBusy(BASE.plusDays(5)));
+      assertTrue(before.isBusy(BASE.plusHours(39).plusMinutes(29)));
+      assertFalse(before.isBusy(BASE.plusHours(39).plusMinutes(30)));
+    }
+  }
+
+  /**
+   * Tests that edits interleaved with snapshots, across many storage chunks, only ever show
+   * in the snapshots taken after them.
+   */
+  @Test
+  void testSnapshotsKeepTheirSubjectsAcrossEdits() {
+    for (StorageMode mode : StorageMode.values()) {
+      Calendar cal = new Calendar("work", EST, mode);
+      List<IEvent> batch = new ArrayList<>();
+      for (int i = 0; i < 3000; i++) {
+        batch.add(new Event("E" + i, BASE.plusHours(i), BASE.plusHours(i).plusMinutes(30),
+            null, null, true));
+      }
+      cal.addEvents(batch);
+      Random random = new Random(11);
+      List<CalendarSnapshot> snapshots = new ArrayList<>();
+      List<String[]> expected = new ArrayList<>();
+      String[] subjects = new String[3000];
+      for (int i = 0; i < subjects.length; i++) {
+        subjects[i] = "E" + i;
+      }
+      for (int round = 0; round < 20; round++) {
+        snapshots.add(cal.snapshot());
+        expected.add(subjects.clone());
+        for (int edit = 0; edit < 1 + random.nextInt(5); edit++) {
+          int i = random.nextInt(subjects.length);
+          subjects[i] = "R" + round + "-" + i;
+          cal.editEventInstance(BASE.plusHours(i), "name", subjects[i]);
+        }
+        if (round % 7 == 0) {
+          cal.addEvent(new Event("Late" + round, BASE.plusDays(200 + round),
+              BASE.plusDays(200 + round).plusHours(1), null, null, true));
+        }
+      }
+      snapshots.add(cal.snapshot());
+      expected.add(subjects.clone());
+      for (int s = 0; s < snapshots.size(); s++) {
+        List<IEvent> events = snapshots.get(s).getEventsInRange(BASE, BASE.plusHours(2999));
+        for (int i = 0; i < subjects.length; i++) {
+          assertEquals(expected.get(s)[i], events.get(i).getSubject());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+import model.Event;
+import model.EventRecord;
+import model.StringDictionary;
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the EventRecord class, the immutable value form of an event.
+ */
+public class EventRecordTest {
+
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+  private static final ZonedDateTime BASE = ZonedDateTime.of(2025, 3, 1, 0, 0,
+      0, 0, EST);
+
+  /**
+   * Tests that event records compare by value and survive a round trip through an event.
+   */
+  @Test
+  void testEventRecordsCompareByValue() {
+    StringDictionary strings = new StringDictionary();
+    Event timed = new Event("Standup", BASE, BASE.plusMinutes(15), "Room 4B", null, false);
+    Event allDay = new Event("Holiday", BASE, null, null, "Office closed", true);
+    EventRecord record = EventRecord.of(timed, strings);
+    assertEquals(record, EventRecord.of(new Event("Standup", BASE, BASE.plusMinutes(15),
+        "Room 4B", null, false), strings));
+    assertEquals(record.hashCode(), EventRecord.of(record.toEvent(), strings).hashCode());
+    assertEquals(timed, record.toEvent());
+    assertEquals(allDay, EventRecord.of(allDay, strings).toEvent());
+    assertTrue(EventRecord.of(allDay, strings).isAllDay());
+    assertFalse(record.equals(record.withSubject("Retro")));
+    assertEquals("Retro", record.withSubject("Retro").getSubject());
+    assertEquals("Standup", record.getSubject());
+  }
+}
@@ -0,0 +1,56 @@
+import model.Calendar;
+import model.Event;
+import model.IEvent;
+import model.RangeQueryCache;
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for the RangeQueryCache class, which keeps recent range query results.
+ */
+public class RangeQueryCacheTest {
+
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+  private static final ZonedDateTime BASE = ZonedDateTime.of(2025, 3, 1, 0, 0,
+      0, 0, EST);
+
+  /**
+   * Tests that cached range results are reused until the calendar changes.
+   */
+  @Test
+  void testRangeCacheHitsUntilCalendarChanges() {
+    Calendar cal = new Calendar("work", EST);
+    RangeQueryCache cache = new RangeQueryCache(2);
+    cal.setRangeCache(cache);
+    cal.addEvent(new Event("A", BASE.plusHours(9), BASE.plusHours(10), null, null, true));
+    List<IEvent> first = cal.getEventsInRange(BASE, BASE.plusDays(1));
+    assertSame(first, cal.getEventsInRange(BASE.withZoneSameInstant(ZoneId.of("UTC")),
+        BASE.plusDays(1)));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    assertFalse(cal.addEvent(new Event("Clash", BASE.plusHours(9), BASE.plusHours(10), null,
+        null, true)));
+    assertSame(first, cal.getEventsInRange(BASE, BASE.plusDays(1)));
+    cal.addEvent(new Event("B", BASE.plusHours(11), BASE.plusHours(12), null, null, true));
+    assertEquals(2, cal.getEventsInRange(BASE, BASE.plusDays(1)).size());
+    cal.editEventInstance(BASE.plusHours(9), "name", "Renamed");
+    assertEquals("Renamed", cal.getEventsInRange(BASE, BASE.plusDays(1)).get(0).getSubject());
+    cal.setTimezone(ZoneId.of("UTC"));
+    cal.getEventsInRange(BASE, BASE.plusDays(1));
+    assertEquals(2, cache.getHits());
+    assertEquals(4, cache.getMisses());
+
+    cal.getEventsInRange(BASE, BASE.plusDays(2));
+    cal.getEventsInRange(BASE, BASE.plusDays(3));
+    assertEquals(2, cache.size());
+    cal.getEventsInRange(BASE, BASE.plusDays(1));
+    assertEquals(7, cache.getMisses());
+  }
+}
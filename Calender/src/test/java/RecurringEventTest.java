@@ -3,11 +3,13 @@ import model.Event;
 import org.junit.jupiter.api.Test;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test class for validating RecurringEvent functionality.
@@ -39,6 +41,24 @@ public class RecurringEventTest {
             true, "M", 1, null));
   }
 
+  @Test
+  void testOverlappingOccurrencesAreRejected() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 10, 0,
+        0, 0, EST); // Monday, March 3, 2025
+    assertThrows(IllegalArgumentException.class, () ->
+        new RecurringEvent("Shift", start, start.plusHours(30), null, null,
+            true, "", 3, null));
+    assertThrows(IllegalArgumentException.class, () ->
+        new RecurringEvent("Shift", start, start.plusHours(49), null, null,
+            true, "MW", null, null));
+    RecurringEvent once = new RecurringEvent("Shift", start, start.plusHours(30), null, null,
+        true, "", 1, null);
+    assertEquals(1, once.expandInstances().size());
+    RecurringEvent weekly = new RecurringEvent("Shift", start, start.plusHours(48), null, null,
+        true, "MW", 4, null);
+    assertEquals(4, weekly.expandInstances().size());
+  }
+
   @Test
   void testAllDayRecurringEvent() {
     ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 0, 0,
@@ -128,4 +148,103 @@ public class RecurringEventTest {
     List<Event> instances = re.getInstances(from, to);
     assertEquals(0, instances.size());
   }
+
+  @Test
+  void testInstancesInWindowOfLongSeries() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 10, 0,
+        0, 0, EST); // Monday, March 3, 2025
+    RecurringEvent re = new RecurringEvent("Standup", start, start.plusMinutes(15), null,
+        null, true, "", null, start.plusYears(10));
+    ZonedDateTime from = ZonedDateTime.of(2031, 6, 10, 0, 0, 0, 0, EST);
+    List<Event> instances = re.getInstances(from, from.plusDays(2));
+    assertEquals(2, instances.size());
+    assertEquals(ZonedDateTime.of(2031, 6, 10, 10, 0, 0, 0, EST), instances.get(0).getStart());
+  }
+
+  @Test
+  void testInstancesInWindowRespectOccurrenceCount() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 10, 0,
+        0, 0, EST); // Monday, March 3, 2025
+    RecurringEvent re = new RecurringEvent("Yoga", start, start.plusHours(1), null,
+        null, true, "MW", 5, null);
+    assertEquals(1, re.getInstances(start.plusWeeks(2), start.plusWeeks(3)).size());
+    assertEquals(0, re.getInstances(start.plusWeeks(3), start.plusWeeks(4)).size());
+  }
+
+  @Test
+  void testWeekdayLettersMatchFirstLetterOfDayName() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 10, 0,
+        0, 0, EST); // Monday, March 3, 2025
+    RecurringEvent re = new RecurringEvent("Gym", start, start.plusHours(1), null,
+        null, true, "T", 4, null);
+    List<Event> instances = re.expandInstances();
+    assertEquals(start.plusDays(1), instances.get(0).getStart()); // Tuesday
+    assertEquals(start.plusDays(3), instances.get(1).getStart()); // Thursday
+    assertEquals(start.plusDays(8), instances.get(2).getStart()); // Next Tuesday
+
+    RecurringEvent workdays = new RecurringEvent("Standup", start, start.plusHours(1), null,
+        null, true, "MTWTF", null, start.plusWeeks(2).minusDays(1));
+    assertEquals(10, workdays.expandInstances().size());
+    RecurringEvent weekends = new RecurringEvent("Hike", start, start.plusHours(1), null,
+        null, true, "s", 2, null);
+    assertEquals(start.plusDays(5), weekends.getOccurrence(0).getStart()); // Saturday
+    assertEquals(start.plusDays(6), weekends.getOccurrence(1).getStart()); // Sunday
+    assertThrows(IllegalArgumentException.class, () -> new RecurringEvent("Gym", start,
+        start.plusHours(1), null, null, true, "MR", 4, null));
+  }
+
+  @Test
+  void testNthOccurrenceMatchesExpansion() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 5, 18, 30,
+        0, 0, EST); // Wednesday, March 5, 2025
+    RecurringEvent re = new RecurringEvent("Choir", start, start.plusHours(2), null,
+        null, true, "MS", null, start.plusYears(20));
+    List<Event> instances = re.expandInstances();
+    int expected = 0;
+    for (ZonedDateTime d = start; !d.isAfter(start.plusYears(20)); d = d.plusDays(1)) {
+      String day = d.getDayOfWeek().toString();
+      if (day.equals("MONDAY") || day.equals("SATURDAY") || day.equals("SUNDAY")) {
+        expected++;
+      }
+    }
+    assertEquals(expected, instances.size());
+    for (int n = 0; n < instances.size(); n += 97) {
+      assertEquals(instances.get(n).getStart(), re.getOccurrence(n).getStart());
+    }
+    assertNull(re.getOccurrence(instances.size()));
+  }
+
+  @Test
+  void testOccurrenceAtOrAfter() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 2, 9, 0,
+        0, 0, EST); // Sunday, March 2, 2025
+    RecurringEvent re = new RecurringEvent("Service", start, start.plusHours(1), null,
+        null, true, "S", null, null);
+    assertEquals(start, re.getOccurrenceAtOrAfter(start.minusDays(3)).getStart());
+    assertEquals(start, re.getOccurrenceAtOrAfter(start).getStart());
+    assertEquals(start.plusDays(6), re.getOccurrenceAtOrAfter(start.plusMinutes(1)).getStart());
+    ZonedDateTime later = ZonedDateTime.of(2044, 7, 13, 9, 0, 0, 0, EST); // Wednesday
+    assertEquals(ZonedDateTime.of(2044, 7, 16, 9, 0, 0, 0, EST),
+        re.getOccurrenceAtOrAfter(later).getStart());
+  }
+
+  @Test
+  void testUnboundedSeriesStreamsLazily() {
+    ZonedDateTime start = ZonedDateTime.of(2025, 3, 3, 10, 0,
+        0, 0, EST); // Monday, March 3, 2025
+    RecurringEvent re = new RecurringEvent("Forever", start, start.plusHours(1), null,
+        null, true, "MWF", null, null);
+    assertTrue(re.isUnbounded());
+    assertNull(re.getSeriesEnd());
+    assertThrows(IllegalStateException.class, re::expandInstances);
+    ZonedDateTime from = start.plusYears(500);
+    List<Event> window = re.getInstances(from, from.plusWeeks(1));
+    assertEquals(3, window.size());
+    Iterator<Event> it = re.iterator(start);
+    for (int i = 0; i < 1000; i++) {
+      it.next();
+    }
+    assertEquals(start.plusWeeks(333).plusDays(2), it.next().getStart());
+    assertEquals(10, re.stream(start, start.plusYears(1000)).limit(10).count());
+  }
 }
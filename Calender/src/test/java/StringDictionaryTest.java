@@ -0,0 +1,100 @@
+import model.Calendar;
+import model.Event;
+import model.IEvent;
+import model.RecurringEvent;
+import model.StorageMode;
+import model.StringDictionary;
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the StringDictionary class, which deduplicates the text fields of events.
+ */
+public class StringDictionaryTest {
+
+  private static final ZoneId EST = ZoneId.of("America/New_York");
+  private static final ZonedDateTime BASE = ZonedDateTime.of(2025, 3, 1, 0, 0,
+      0, 0, EST);
+
+  /**
+   * Tests that repeated text fields are stored once and the savings are reported.
+   */
+  @Test
+  void testRepeatedStringsAreShared() {
+    for (StorageMode mode : StorageMode.values()) {
+      Calendar cal = new Calendar("work", EST, mode);
+      for (int i = 0; i < 10; i++) {
+        ZonedDateTime start = BASE.plusDays(i);
+        cal.addEvent(new Event(new String("Standup"), start, start.plusMinutes(15),
+            new String("Room 4B"), null, true));
+      }
+      List<IEvent> events = cal.getEventsInRange(BASE, BASE.plusDays(10));
+      assertEquals(10, events.size());
+      assertTrue(events.get(0).getSubject() == events.get(9).getSubject());
+      assertTrue(events.get(0).getLocation() == events.get(9).getLocation());
+      assertEquals(2, cal.getStringDictionary().size());
+      assertEquals(18 * (40 + 7), cal.getStringDictionary().getBytesSaved());
+    }
+  }
+
+  /**
+   * Tests that a string is dropped from the dictionary once no event or series holds it.
+   */
+  @Test
+  void testUnusedStringsAreEvicted() {
+    for (StorageMode mode : StorageMode.values()) {
+      Calendar cal = new Calendar("work", EST, mode);
+      StringDictionary strings = cal.getStringDictionary();
+      cal.addEvent(new Event("Standup", BASE, BASE.plusMinutes(15), "Room 4B", null, true));
+      cal.addEvent(new Event("Standup", BASE.plusDays(1), BASE.plusDays(1).plusMinutes(15),
+          "Room 4B", null, true));
+      assertEquals(2, strings.size());
+      cal.editEventInstance(BASE, "name", "Retro");
+      assertEquals(3, strings.size());
+      cal.editEventInstance(BASE.plusDays(1), "name", "Retro");
+      assertEquals(2, strings.size());
+
+      ZonedDateTime seriesStart = BASE.plusDays(7).plusHours(10);
+      cal.addRecurringEvent(new RecurringEvent("Sync", seriesStart, seriesStart.plusHours(1),
+          "Room 9", null, true, "SF", 4, null));
+      assertEquals(4, strings.size());
+      cal.editEventInstance(seriesStart.plusDays(1), "name", "Moved sync");
+      assertEquals(4, strings.size());
+      cal.editEventInstance(seriesStart, "name", "Retro");
+      // "Sync" is gone; the series still holds "Room 9"
+      assertEquals(3, strings.size());
+      assertEquals("Retro", cal.getEventsInRange(seriesStart, seriesStart.plusDays(14)).stream()
+          .filter(e -> e.getStart().isEqual(seriesStart.plusDays(6))).findFirst().get()
+          .getSubject());
+    }
+  }
+
+  /**
+   * Tests that threads interning the same strings all get one canonical instance, and that
+   * releasing every reference empties the dictionary.
+   */
+  @Test
+  void testConcurrentInternSharesOneInstance() {
+    StringDictionary strings = new StringDictionary();
+    List<String> interned = ForkJoinPool.commonPool().submit(() ->
+        Arrays.asList(new String[4000]).parallelStream()
+            .map(unused -> strings.intern(new String("Standup")))
+            .collect(Collectors.toList())).join();
+    assertEquals(1, strings.size());
+    assertEquals(4000, strings.getLookups());
+    for (String value : interned) {
+      assertSame(interned.get(0), value);
+    }
+    interned.forEach(strings::release);
+    assertEquals(0, strings.size());
+  }
+}
@@ -0,0 +1,62 @@
+import model.ZoneOffsetCache;
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the ZoneOffsetCache class.
+ */
+public class ZoneOffsetCacheTest {
+  private static final String[] ZONES = {"America/New_York", "Europe/London", "Asia/Kolkata",
+      "Australia/Lord_Howe", "America/Sao_Paulo", "UTC"};
+
+  /**
+   * Tests that instant to local conversions agree with the zone rules.
+   */
+  @Test
+  void testInstantToLocalMatchesZoneRules() {
+    Random random = new Random(31);
+    for (String name : ZONES) {
+      ZoneId zone = ZoneId.of(name);
+      for (int i = 0; i < 20000; i++) {
+        // Mostly sorted runs, as in an export, with occasional jumps, including far years
+        long second = i % 1000 == 0 ? random.nextLong() % (300L * 365 * 86400)
+            : 1_600_000_000L + random.nextInt(400_000_000);
+        LocalDateTime expected = Instant.ofEpochSecond(second).atZone(zone).toLocalDateTime();
+        assertEquals(expected.toEpochSecond(ZoneOffset.UTC),
+            ZoneOffsetCache.toLocalSecond(zone, second));
+        assertEquals(expected.toLocalDate(), ZoneOffsetCache.toLocalDate(zone, second));
+      }
+    }
+  }
+
+  /**
+   * Tests that local to instant conversions resolve gaps and overlaps like atZone.
+   */
+  @Test
+  void testLocalToInstantMatchesAtZone() {
+    Random random = new Random(37);
+    for (String name : ZONES) {
+      ZoneId zone = ZoneId.of(name);
+      for (int i = 0; i < 20000; i++) {
+        // Quarter-hour steps land on transition gaps and overlaps regularly
+        LocalDateTime local = LocalDateTime.of(1990 + random.nextInt(60), 1 + random.nextInt(12),
+            1 + random.nextInt(28), random.nextInt(24), 15 * random.nextInt(4));
+        assertEquals(local.atZone(zone).toEpochSecond(), toEpochSecond(zone, local));
+      }
+      LocalDateTime gap = LocalDateTime.of(2025, 3, 9, 2, 30);
+      assertEquals(gap.atZone(zone).toEpochSecond(), toEpochSecond(zone, gap));
+      LocalDateTime overlap = LocalDateTime.of(2025, 11, 2, 1, 30);
+      assertEquals(overlap.atZone(zone).toEpochSecond(), toEpochSecond(zone, overlap));
+    }
+  }
+
+  private static long toEpochSecond(ZoneId zone, LocalDateTime local) {
+    return ZoneOffsetCache.toEpochSecond(zone, local.toEpochSecond(ZoneOffset.UTC));
+  }
+}